@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Deflater;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Content of the synthetic request bodies. A block is filled once and repeated up to the body size.
+ */
+public enum BodyPattern {
+
+    ZEROS {
+        @Override
+        void fill(ByteBuf block, int size, double compressionRatio) {
+            block.writeZero(size);
+        }
+    },
+
+    /**
+     * Incompressible (the block is larger than the deflate window, so its repetitions are not found either).
+     */
+    RANDOM {
+        @Override
+        void fill(ByteBuf block, int size, double compressionRatio) {
+            final byte[] bytes = new byte[size];
+            ThreadLocalRandom.current().nextBytes(bytes);
+            block.writeBytes(bytes);
+        }
+    },
+
+    /**
+     * Lowercase text: random segments mixed with repeated ones, in the proportion that deflates close to the
+     * compression ratio.
+     */
+    TEXT {
+        @Override
+        void fill(ByteBuf block, int size, double compressionRatio) {
+            double low = 0.0;
+            double high = 1.0;
+            byte[] text = null;
+            double ratio = 0.0;
+            for (int step = 0; step < CALIBRATION_STEPS; step++) {
+                final double randomShare = (low + high) / 2.0;
+                text = text(size, randomShare);
+                ratio = compressionRatio(text);
+                if (ratio > compressionRatio) {
+                    low = randomShare;
+                } else {
+                    high = randomShare;
+                }
+            }
+            LOGGER.info(String.format("Using synthetic text body: compression ratio %.2f (target %.2f)", ratio, compressionRatio));
+            block.writeBytes(text);
+        }
+    };
+
+    private static final Log LOGGER = LogFactory.getLog(BodyPattern.class);
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int SEGMENT_SIZE = 64;
+    private static final int CALIBRATION_STEPS = 12;
+    private static final byte[] ALPHABET = "abcdefghijklmnopqrstuvwxyz      etaoin,.\n".getBytes();
+
+    abstract void fill(ByteBuf block, int size, double compressionRatio);
+
+    /**
+     * Pre-filled direct block. The compression ratio is used by the text pattern only.
+     */
+    ByteBuf newBlock(double compressionRatio) {
+        final ByteBuf block = Unpooled.directBuffer(BLOCK_SIZE, BLOCK_SIZE);
+        fill(block, BLOCK_SIZE, compressionRatio);
+        return block;
+    }
+
+    private static byte[] text(int size, double randomShare) {
+        final Random random = new Random(size);
+        final byte[] text = new byte[size];
+        for (int offset = 0; offset < size; offset += SEGMENT_SIZE) {
+            final int length = Math.min(SEGMENT_SIZE, size - offset);
+            if (offset == 0 || random.nextDouble() < randomShare) {
+                for (int index = offset; index < offset + length; index++) {
+                    text[index] = ALPHABET[random.nextInt(ALPHABET.length)];
+                }
+            } else {
+                final int source = random.nextInt(offset / SEGMENT_SIZE) * SEGMENT_SIZE;
+                System.arraycopy(text, source, text, offset, length);
+            }
+        }
+        return text;
+    }
+
+    private static double compressionRatio(byte[] data) {
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            final byte[] out = new byte[data.length];
+            long compressed = 0L;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(out);
+            }
+            return data.length / (double) Math.max(1L, compressed);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -23,11 +23,16 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollDatagramChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.kqueue.KQueueDatagramChannel;
 import io.netty.channel.kqueue.KQueueEventLoopGroup;
 import io.netty.channel.kqueue.KQueueSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.AttributeKey;
 import org.apache.commons.logging.Log;
@@ -61,6 +66,16 @@ public class BootstrapBuilder {
             option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout).
             option(ChannelOption.TCP_NODELAY, true).
             option(ChannelOption.SO_REUSEADDR, true);
+        Integer lowWaterMark = property.getWriteBufferLowWaterMark();
+        Integer highWaterMark = property.getWriteBufferHighWaterMark();
+        if (lowWaterMark != null || highWaterMark != null) {
+            // a missing water mark keeps its default (checked by PropertiesUtils)
+            int low = lowWaterMark != null ? lowWaterMark : WriteBufferWaterMark.DEFAULT.low();
+            int high = highWaterMark != null ? highWaterMark : WriteBufferWaterMark.DEFAULT.high();
+            final WriteBufferWaterMark waterMark = new WriteBufferWaterMark(low, high);
+            LOGGER.info("Using write buffer water mark " + waterMark);
+            bootstrap.option(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
+        }
         return bootstrap;
     }
 
@@ -72,6 +87,17 @@ public class BootstrapBuilder {
         // @formatter:on
     }
 
+    /**
+     * Datagram channel of the transport used (for the DNS queries).
+     */
+    public static Class<? extends DatagramChannel> getDatagramChannelClass() {
+        // @formatter:off
+        return IS_MAC   ? KQueueDatagramChannel.class :
+               IS_LINUX ? EpollDatagramChannel.class :
+                          NioDatagramChannel.class;
+        // @formatter:on
+    }
+
     public static EventLoopGroup getEventLoopGroup(int numCores) {
         // @formatter:off
         return IS_MAC   ? new KQueueEventLoopGroup(numCores) :
@@ -16,25 +16,36 @@
 
 package com.globocom.grou.groot.channel;
 
+import static com.globocom.grou.groot.channel.handler.InFlightRequests.IN_FLIGHT_ATTR;
+
 import com.globocom.grou.groot.channel.handler.CookieStorageHandler;
 import com.globocom.grou.groot.channel.handler.Http1ClientInitializer;
 import com.globocom.grou.groot.channel.handler.Http2ClientInitializer;
+import com.globocom.grou.groot.channel.handler.InFlightRequests;
+import com.globocom.grou.groot.channel.handler.RedirectFollower;
+import com.globocom.grou.groot.channel.scheduler.Ramp;
+import com.globocom.grou.groot.channel.scheduler.RequestScheduler;
 import com.globocom.grou.groot.loader.Proto;
 import com.globocom.grou.groot.monit.MonitorService;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.EventLoopGroup;
-import io.netty.handler.codec.http.FullHttpRequest;
-import io.netty.handler.codec.http.HttpHeaderNames;
-import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.FutureListener;
 import java.net.URI;
-import java.util.AbstractMap.SimpleImmutableEntry;
-import java.util.concurrent.CancellationException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,27 +54,59 @@ public class ChannelManager {
 
     private static final Log LOGGER = LogFactory.getLog(ChannelManager.class);
 
-    private static final int DEFAULT_TCP_HTTP = 80;
-    private static final int DEFAULT_TCP_HTTPS = 443;
+    /**
+     * Connection slot (0 to numConn - 1) of the channel.
+     */
+    public static final AttributeKey<Integer> SLOT_ATTR = AttributeKey.newInstance("slot");
+
+    /**
+     * Host pool of the channel (see {@link HostPools}).
+     */
+    public static final AttributeKey<Integer> POOL_ATTR = AttributeKey.newInstance("pool");
+
+    /**
+     * Set on the channels closed by the end of the test: their requests in flight are not failures.
+     */
+    public static final AttributeKey<Boolean> TEST_END_ATTR = AttributeKey.newInstance("testEnd");
+
+    private static final long RECONNECT_BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RECONNECT_MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final long DRAIN_CHECK_MILLIS = 10L;
 
     private final long start;
-    private final ScheduledExecutorService executor;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicBoolean finished = new AtomicBoolean(false);
 
     private SslService sslService = null;
+    private SslContext sslContext = null;
+    private boolean tlsSessionResumption = false;
+    private List<TlsProfile> tlsProfiles = Collections.emptyList();
+    private volatile int tlsProfile = 0;
     private MonitorService monitorService = null;
+    private RequestScheduler scheduler = null;
+    private Ramp ramp = Ramp.NONE;
     private Bootstrap bootstrap = null;
     private EventLoopGroup group = null;
-    private Proto proto = null;
-    private FullHttpRequest[] requests = new FullHttpRequest[0];
-    private int fixedDelay = 45;
+    private HostPools hostPools = null;
     private int numConn = 0;
     private int durationSec = 0;
-    @SuppressWarnings("unchecked")
-    private SimpleImmutableEntry<Channel, ScheduledFuture>[] channels = new SimpleImmutableEntry[0];
+    private int connectRate = 0;
+    private int maxPendingConnects = 0;
+    private int reconnectRate = 0;
+    private boolean forceReconnect = false;
+    private boolean keepAlive = true;
+    private int maxRedirects = 0;
+    private Map<String, List<String>> resolve = null;
+    private int[] slotPools = new int[0];
+    private RedirectFollower redirectFollower = null;
+    private volatile boolean closing = false;
+    private Channel[] channels = new Channel[0];
+    private int[] reconnectAttempts = new int[0];
+    private ConnectThrottle connectThrottle = null;
 
     public ChannelManager() {
         this.start = System.currentTimeMillis();
-        executor = Executors.newSingleThreadScheduledExecutor();
     }
 
     public ChannelManager setSslService(SslService sslService) {
@@ -76,6 +119,16 @@ public class ChannelManager {
         return this;
     }
 
+    public ChannelManager setScheduler(RequestScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    public ChannelManager setRamp(Ramp ramp) {
+        this.ramp = ramp;
+        return this;
+    }
+
     public ChannelManager setDurationSec(int durationSec) {
         this.durationSec = durationSec;
         return this;
@@ -87,159 +140,309 @@ public class ChannelManager {
         return this;
     }
 
-    public ChannelManager setProto(Proto proto) {
-        this.proto = proto;
+    public ChannelManager setHostPools(HostPools hostPools) {
+        this.hostPools = hostPools;
+        return this;
+    }
+
+    public ChannelManager setNumConn(int numConn) {
+        this.numConn = numConn;
+        channels = new Channel[numConn];
+        reconnectAttempts = new int[numConn];
         return this;
     }
 
-    public ChannelManager setRequests(FullHttpRequest[] requests) {
-        this.requests = requests;
+    public ChannelManager setConnectRate(int connectRate) {
+        this.connectRate = connectRate;
         return this;
     }
 
-    public ChannelManager setFixedDelay(int fixedDelay) {
-        this.fixedDelay = fixedDelay;
+    public ChannelManager setMaxPendingConnects(int maxPendingConnects) {
+        this.maxPendingConnects = maxPendingConnects;
         return this;
     }
 
-    public ChannelManager setNumConn(int numConn) {
-        this.numConn = numConn;
-        //noinspection unchecked
-        channels = new SimpleImmutableEntry[numConn];
+    public ChannelManager setReconnectRate(int reconnectRate) {
+        this.reconnectRate = reconnectRate;
+        return this;
+    }
+
+    public ChannelManager setForceReconnect(boolean forceReconnect) {
+        this.forceReconnect = forceReconnect;
+        return this;
+    }
+
+    /**
+     * Persistent connections. The TLS profiles sweep renews them at each step.
+     */
+    public ChannelManager setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * Redirects followed per request (HTTP/1 only). Zero disables the redirects following.
+     */
+    public ChannelManager setMaxRedirects(int maxRedirects) {
+        this.maxRedirects = maxRedirects;
+        return this;
+    }
+
+    /**
+     * Addresses used instead of the DNS ones, by host.
+     */
+    public ChannelManager setResolve(Map<String, List<String>> resolve) {
+        this.resolve = resolve;
+        return this;
+    }
+
+    /**
+     * Resume the TLS sessions on reconnections (session ids or tickets). Otherwise every connection does a full
+     * handshake.
+     */
+    public ChannelManager setTlsSessionResumption(boolean tlsSessionResumption) {
+        this.tlsSessionResumption = tlsSessionResumption;
+        return this;
+    }
+
+    /**
+     * TLS profiles swept one after the other, each one during an equal share of the test duration. A profile
+     * applies to the new connections: the persistent ones are closed at each step, so they reconnect (forceReconnect)
+     * with the new profile.
+     */
+    public ChannelManager setTlsProfiles(List<TlsProfile> tlsProfiles) {
+        this.tlsProfiles = tlsProfiles;
         return this;
     }
 
     public ChannelManager check() throws IllegalArgumentException {
         if (monitorService == null ||
             sslService == null ||
+            scheduler == null ||
             numConn == 0 ||
             durationSec == 0 ||
             bootstrap == null ||
-            proto == null ||
-            requests.length == 0 ||
+            hostPools == null ||
             channels.length == 0) {
             throw new IllegalArgumentException();
         }
+        slotPools = hostPools.slotPools(numConn);
+        bootstrap.resolver(new RoundRobinAddressResolverGroup(resolve, monitorService));
+        bootstrap.attr(SslService.SESSION_RESUMPTION_ATTR, tlsSessionResumption);
+        sslContext = sslService.sslContext(true, tlsSessionResumption || !tlsProfiles.isEmpty());
+        if (tlsSessionResumption && sslContext != null) {
+            LOGGER.info("Resuming TLS sessions");
+            SslService.invalidateSessions(sslContext);
+            bootstrap.attr(SslService.SESSION_IDS_ATTR, SslService.newSessionIds(sslContext));
+        }
+        if (!tlsProfiles.isEmpty()) {
+            LOGGER.info("Sweeping TLS profiles: " + tlsProfiles);
+            monitorService.setTlsProfiles(tlsProfiles.stream().map(TlsProfile::name).toArray(String[]::new));
+        }
+        connectThrottle = new ConnectThrottle(group.next(), monitorService, numConn, this::connectAsync, connectRate, reconnectRate, maxPendingConnects);
+        final boolean http1 = IntStream.range(0, hostPools.size())
+            .anyMatch(pool -> hostPools.proto(pool) == Proto.HTTP || hostPools.proto(pool) == Proto.HTTPS);
+        if (maxRedirects > 0 && http1) {
+            LOGGER.info("Following redirects (max " + maxRedirects + " hops)");
+            redirectFollower = new RedirectFollower(bootstrap, sslContext, monitorService, maxRedirects);
+        }
         return this;
     }
 
     private ChannelInitializer initializer(Proto proto) {
         if (proto == Proto.H2 || proto == Proto.H2C) {
-            return new Http2ClientInitializer(sslService.sslContext(proto.isSsl()), Integer.MAX_VALUE, monitorService);
+            return new Http2ClientInitializer(proto.isSsl() ? sslContext : null, Integer.MAX_VALUE, monitorService);
         }
-        return new Http1ClientInitializer(sslService.sslContext(proto.isSsl()), monitorService);
+        return new Http1ClientInitializer(proto.isSsl() ? sslContext : null, monitorService);
     }
 
-    private SimpleImmutableEntry<Channel, ScheduledFuture> newChannel() throws Exception {
-        try {
-            if (!bootstrap.config().group().isShuttingDown() && !bootstrap.config().group().isShutdown()) {
-                URI uri = URI.create(proto.name().toLowerCase() + "://" + requests[0].headers().get(HttpHeaderNames.HOST) + requests[0].uri());
-                final Channel channel = bootstrap
-                    .clone()
-                    .handler(initializer(proto))
-                    .connect(uri.getHost(), getPort(uri))
-                    .sync()
-                    .channel();
-
-                final ScheduledFuture<?> scheduledFuture = channel.eventLoop().scheduleAtFixedRate(() -> {
-                    if (channel.isActive()) {
-                        for (FullHttpRequest request : requests) {
-                            monitorService.writeCounterIncr();
-                            channel.writeAndFlush(request.copy());
-                        }
-                    }
-                }, fixedDelay, fixedDelay, TimeUnit.MICROSECONDS);
-                return new SimpleImmutableEntry<>(channel, scheduledFuture);
-            }
-        } catch (CancellationException | InterruptedException e) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(e.getMessage(), e);
-            }
-        } catch (Exception e) {
-            monitorService.fail(e);
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(e.getMessage(), e);
-            }
+    private ChannelFuture connectAsync(int chanId) {
+        if (group.isShuttingDown() || group.isShutdown() || (channels[chanId] != null && channels[chanId].isActive())) {
+            return null;
         }
-        return null;
+        final int pool = slotPools[chanId];
+        final URI origin = hostPools.origin(pool);
+        return bootstrap
+            .clone()
+            .attr(SLOT_ATTR, chanId)
+            .attr(POOL_ATTR, pool)
+            .attr(RedirectFollower.ORIGIN_ATTR, origin)
+            .attr(RedirectFollower.REDIRECT_FOLLOWER_ATTR, redirectFollower)
+            .attr(SslService.TLS_PROFILE_ATTR, tlsProfiles.isEmpty() ? null : tlsProfiles.get(tlsProfile))
+            .handler(initializer(hostPools.proto(pool)))
+            .connect(origin.getHost(), origin.getPort())
+            .addListener((ChannelFutureListener) future -> {
+                if (future.isSuccess()) {
+                    channels[chanId] = future.channel();
+                    scheduler.register(future.channel());
+                    future.channel().closeFuture().addListener(closeFuture -> scheduleReconnect(chanId, isServed(future.channel())));
+                } else {
+                    scheduleReconnect(chanId, false);
+                }
+            });
     }
 
-    private int getPort(URI uri) {
-        if (uri.getPort() == -1) {
-            int tcpPort = proto.isSsl() ? DEFAULT_TCP_HTTPS : DEFAULT_TCP_HTTP;
-            return tcpPort;
+    /**
+     * Reconnects the slot after its channel closes or fails to connect. A slot whose connection served something
+     * reconnects immediately. Failed connects and connections closed without serving anything (drained or
+     * rejecting peers) back off exponentially (with jitter), until a connection serves again. The reconnectRate
+     * limits the reconnections of all slots.
+     */
+    private void scheduleReconnect(int chanId, boolean served) {
+        if (!forceReconnect || closing || group.isShuttingDown() || System.currentTimeMillis() - start >= durationSec * 1_000L) {
+            return;
+        }
+        if (served) {
+            reconnectAttempts[chanId] = 0;
+            connectThrottle.submit(chanId, true);
+            return;
         }
-        return uri.getPort();
+        final int attempts = ++reconnectAttempts[chanId];
+        final long backoff = Math.min(RECONNECT_MAX_BACKOFF_NANOS, RECONNECT_BASE_BACKOFF_NANOS << Math.min(attempts - 1, 16));
+        final long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        group.schedule(() -> connectThrottle.submit(chanId, true), delay, TimeUnit.NANOSECONDS);
     }
 
-    public synchronized void activeChannels() {
+    private int dueChannels() {
+        return (int) Math.min(numConn, Math.floor(numConn * ramp.load(System.nanoTime())));
+    }
 
-        final CountDownLatch latch = new CountDownLatch(numConn);
-        IntStream.range(0, numConn).parallel().forEach(chanId -> {
-            if (channels[chanId] == null || channels[chanId].getKey() == null || !channels[chanId].getKey().isActive()) {
-                try {
-                    SimpleImmutableEntry<Channel, ScheduledFuture> channel = newChannel();
-                    if (channel != null) {
-                        channels[chanId] = channel;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(e.getMessage(), e);
-                } finally {
-                    latch.countDown();
-                }
+    /**
+     * Schedules the connection of the slots not due yet (from the first one not started by activeChannels), each
+     * one when the ramp reaches it.
+     */
+    public void rampUpChannels(int firstSlot) {
+        if (ramp.isEnabled()) {
+            for (int chanId = firstSlot; chanId < numConn; chanId++) {
+                final int slot = chanId;
+                group.schedule(() -> connectThrottle.submit(slot, false), ramp.delayNanos((slot + 1.0) / numConn), TimeUnit.NANOSECONDS);
             }
-        });
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Starts (asynchronously) the connection of every due slot not connected yet. Returns the number of due slots.
+     */
+    public int activeChannels() {
+        final int dueChannels = dueChannels();
+        for (int chanId = 0; chanId < dueChannels; chanId++) {
+            if (channels[chanId] == null || !channels[chanId].isActive()) {
+                connectThrottle.submit(chanId, false);
             }
         }
+        return dueChannels;
     }
 
-    public void reconnect() {
-        executor.scheduleAtFixedRate(() -> {
-                if (System.currentTimeMillis() - start < durationSec * 1_000L) {
-                    activeChannels();
-                }
-            }, 100, 100, TimeUnit.MILLISECONDS);
+    public CountDownLatch closeFutureChannels() {
+        group.schedule(this::finish, durationSec, TimeUnit.SECONDS);
+        sweepTlsProfiles();
+        return done;
+    }
 
+    private void sweepTlsProfiles() {
+        if (tlsProfiles.isEmpty()) {
+            return;
+        }
+        monitorService.tlsProfileStarted(0);
+        final long stepMillis = durationSec * 1_000L / tlsProfiles.size();
+        for (int profile = 1; profile < tlsProfiles.size(); profile++) {
+            final int nextProfile = profile;
+            group.schedule(() -> {
+                tlsProfile = nextProfile;
+                monitorService.tlsProfileStarted(nextProfile);
+                LOGGER.info("TLS profile: " + tlsProfiles.get(nextProfile));
+                if (keepAlive) {
+                    Arrays.stream(channels).filter(channel -> channel != null && channel.isActive()).forEach(Channel::close);
+                }
+            }, profile * stepMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
-    public CountDownLatch closeFutureChannels() {
+    /**
+     * Finishes the test as soon as the requests in flight are answered (used when the iterations budget or the
+     * sequential data feeder is exhausted). The duration remains the time limit.
+     */
+    public void finishWhenDrained() {
+        if (!finished.get() && !group.isShuttingDown()) {
+            group.schedule(this::checkDrained, DRAIN_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
 
-        final CountDownLatch done = new CountDownLatch(1);
-
-        group.schedule(() -> {
-            long nowPreShut = System.currentTimeMillis();
-            final CountDownLatch latch = new CountDownLatch(channels.length);
-            try {
-                for (SimpleImmutableEntry<Channel, ScheduledFuture> channel : channels) {
-                    try {
-                        if (channel != null && channel.getKey() != null && channel.getKey().isActive()) {
-                            channel.getValue().cancel(true);
-                            channel.getKey().close();
-                        }
-                    } finally {
-                        latch.countDown();
+    /**
+     * The in-flight requests are confined to the channel event loop, so each channel is checked on its own loop and
+     * the last check decides.
+     */
+    private void checkDrained() {
+        final Channel[] active = Arrays.stream(channels).filter(channel -> channel != null && channel.isActive()).toArray(Channel[]::new);
+        if (active.length == 0) {
+            finish();
+            return;
+        }
+        final AtomicInteger remaining = new AtomicInteger(active.length);
+        final AtomicBoolean drained = new AtomicBoolean(true);
+        for (Channel channel : active) {
+            channel.eventLoop().submit(() -> isDrained(channel)).addListener((FutureListener<Boolean>) future -> {
+                if (!future.isSuccess() || !future.getNow()) {
+                    drained.set(false);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    if (drained.get()) {
+                        finish();
+                    } else {
+                        finishWhenDrained();
                     }
                 }
-                latch.await(10, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug(e.getMessage(), e);
+            });
+        }
+    }
+
+    /**
+     * Called on the channel event loop, once closed.
+     */
+    private static boolean isServed(Channel channel) {
+        final InFlightRequests inFlightRequests = channel.attr(IN_FLIGHT_ATTR).get();
+        return inFlightRequests != null && inFlightRequests.isServed();
+    }
+
+    /**
+     * Called on the channel event loop.
+     */
+    private static boolean isDrained(Channel channel) {
+        final InFlightRequests inFlightRequests = channel.isActive() ? channel.attr(IN_FLIGHT_ATTR).get() : null;
+        return inFlightRequests == null || inFlightRequests.size() == 0;
+    }
+
+    private void finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        long nowPreShut = System.currentTimeMillis();
+        final CountDownLatch latch = new CountDownLatch(channels.length);
+        try {
+            closing = true;
+            scheduler.stop();
+            for (Channel channel : channels) {
+                try {
+                    if (channel != null && channel.isActive()) {
+                        channel.attr(TEST_END_ATTR).set(Boolean.TRUE);
+                        channel.close();
+                    }
+                } finally {
+                    latch.countDown();
                 }
-            } finally {
-                group.shutdownGracefully(1L, 10L, TimeUnit.SECONDS);
-                executor.shutdownNow();
-                CookieStorageHandler.reset();
-                LOGGER.info("Test FINISHED");
-                monitorService.showReport(System.currentTimeMillis() - nowPreShut);
-                done.countDown();
             }
-        }, durationSec, TimeUnit.SECONDS);
-        return done;
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(e.getMessage(), e);
+            }
+        } finally {
+            group.shutdownGracefully(1L, 10L, TimeUnit.SECONDS);
+            CookieStorageHandler.reset();
+            LOGGER.info("Test FINISHED");
+            monitorService.showReport(System.currentTimeMillis() - nowPreShut);
+            done.countDown();
+        }
     }
 
 }
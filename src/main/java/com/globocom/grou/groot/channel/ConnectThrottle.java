@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.EventExecutor;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Asynchronous connection fan-out limited by connects per second and by pending (not yet established) connects.
+ * Connects and reconnects have their own rate, but share the pending connects limit. Slots are queued and
+ * dispatched from a single event executor, so its state needs no locks.
+ */
+class ConnectThrottle {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final EventExecutor executor;
+    private final MonitorService monitorService;
+    private final IntFunction<ChannelFuture> connector;
+    private final int maxPendingConnects;
+    private final boolean[] queued;
+    private final Bucket connects;
+    private final Bucket reconnects;
+
+    private int pending = 0;
+    private boolean tickScheduled = false;
+
+    /**
+     * @param connector starts the connection of a slot, returning null if the slot doesn't need it
+     * @param connectRate connects per second, or zero for unlimited
+     * @param reconnectRate reconnects per second, or zero for unlimited
+     * @param maxPendingConnects connects and reconnects in progress, or zero for unlimited
+     */
+    ConnectThrottle(
+        EventExecutor executor,
+        MonitorService monitorService,
+        int numConn,
+        IntFunction<ChannelFuture> connector,
+        int connectRate,
+        int reconnectRate,
+        int maxPendingConnects) {
+
+        this.executor = executor;
+        this.monitorService = monitorService;
+        this.connector = connector;
+        this.maxPendingConnects = maxPendingConnects;
+        this.queued = new boolean[numConn];
+        this.connects = new Bucket(false, connectRate);
+        this.reconnects = new Bucket(true, reconnectRate);
+    }
+
+    /**
+     * Queues a connect (or a reconnect) of the slot, unless it is already queued or connecting.
+     */
+    void submit(int slot, boolean reconnect) {
+        if (executor.isShuttingDown()) {
+            return;
+        }
+        executor.execute(() -> {
+            if (!queued[slot]) {
+                queued[slot] = true;
+                (reconnect ? reconnects : connects).queue.offer(slot);
+                dispatch();
+            }
+        });
+    }
+
+    private void dispatch() {
+        dispatch(connects);
+        dispatch(reconnects);
+        if ((connects.isWaiting() || reconnects.isWaiting()) && hasPendingRoom() && !tickScheduled && !executor.isShuttingDown()) {
+            tickScheduled = true;
+            executor.schedule(() -> {
+                tickScheduled = false;
+                dispatch();
+            }, TICK_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void dispatch(final Bucket bucket) {
+        bucket.refill();
+        while (!bucket.queue.isEmpty() && hasPendingRoom() && bucket.hasToken()) {
+            final int slot = bucket.queue.poll();
+            final long start = System.nanoTime();
+            final ChannelFuture future = connector.apply(slot);
+            if (future == null) {
+                queued[slot] = false;
+                continue;
+            }
+            pending++;
+            bucket.tokens -= 1.0;
+            future.addListener(f -> {
+                if (f.isSuccess()) {
+                    monitorService.sendConnectTime(start, bucket.reconnect);
+                } else if (!f.isCancelled()) {
+                    monitorService.connectFail(f.cause(), bucket.reconnect);
+                }
+                if (!executor.isShutdown()) {
+                    executor.execute(() -> {
+                        queued[slot] = false;
+                        pending--;
+                        dispatch();
+                    });
+                }
+            });
+        }
+    }
+
+    private boolean hasPendingRoom() {
+        return maxPendingConnects <= 0 || pending < maxPendingConnects;
+    }
+
+    /**
+     * Queued slots and token bucket of one kind of connects.
+     */
+    private static final class Bucket {
+
+        private final boolean reconnect;
+        private final int rate;
+        private final double burst;
+        private final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        private Bucket(boolean reconnect, int rate) {
+            this.reconnect = reconnect;
+            this.rate = rate;
+            this.burst = Math.max(1.0, rate * TICK_NANOS / 1e9);
+            this.tokens = burst;
+        }
+
+        private void refill() {
+            final long now = System.nanoTime();
+            if (rate > 0) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1e9);
+            }
+            lastRefill = now;
+        }
+
+        private boolean hasToken() {
+            return rate <= 0 || tokens >= 1.0;
+        }
+
+        /**
+         * Slots queued but held by the rate limit (not by the pending connects, released by their completions).
+         */
+        private boolean isWaiting() {
+            return !queue.isEmpty() && !hasToken();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Request whose body is a file. The content is the file memory mapped (read-only, out of the heap), so it's never
+ * copied: cleartext HTTP/1 sends the file itself (FileRegion), TLS and HTTP/2 send slices of the mapping.
+ */
+public class FileBodyHttpRequest extends DefaultFullHttpRequest {
+
+    private final File file;
+
+    FileBodyHttpRequest(HttpMethod method, String uri, HttpHeaders headers, File file, ByteBuf mapped) {
+        super(HttpVersion.HTTP_1_1, method, uri, mapped, headers, new DefaultHttpHeaders());
+        this.file = file;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Maps the file read-only. Limited to 2 GB.
+     */
+    static ByteBuf map(File file) throws IllegalArgumentException {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("bodyFile " + file + " is larger than 2 GB");
+            }
+            return Unpooled.wrappedBuffer(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bodyFile " + file + " unavailable: " + e.getMessage(), e);
+        }
+    }
+}
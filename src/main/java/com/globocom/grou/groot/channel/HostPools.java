@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import com.globocom.grou.groot.channel.handler.RedirectFollower;
+import com.globocom.grou.groot.loader.Proto;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Connection pools by origin (scheme, host and port) of the requests: the requests of an origin are only sent
+ * through the connections of its pool. The connections configured per host are taken from numConn first, the
+ * rest is split between the other pools by the weight of their requests (the sum of the mix weights, or the
+ * number of requests).
+ */
+public class HostPools {
+
+    private static final Log LOGGER = LogFactory.getLog(HostPools.class);
+
+    private static final int DEFAULT_TCP_HTTP = 80;
+    private static final int DEFAULT_TCP_HTTPS = 443;
+
+    private final List<URI> origins = new ArrayList<>();
+    private final List<Proto> protos = new ArrayList<>();
+    private final int[] requestPools;
+    private final double[] poolWeights;
+    private Map<String, Integer> connsPerHost = Collections.emptyMap();
+
+    public HostPools(URI[] requestUris, double[] weights) {
+        requestPools = new int[requestUris.length];
+        for (int requestId = 0; requestId < requestUris.length; requestId++) {
+            final URI uri = requestUris[requestId];
+            final Proto proto = Proto.valueOf(uri.getScheme().toUpperCase());
+            final int port = uri.getPort() != -1 ? uri.getPort() : proto.isSsl() ? DEFAULT_TCP_HTTPS : DEFAULT_TCP_HTTP;
+            final URI origin = RedirectFollower.origin(uri.getScheme(), uri.getHost(), port);
+            int pool = origins.indexOf(origin);
+            if (pool < 0) {
+                pool = origins.size();
+                origins.add(origin);
+                protos.add(proto);
+            }
+            requestPools[requestId] = pool;
+        }
+        poolWeights = new double[origins.size()];
+        for (int requestId = 0; requestId < requestPools.length; requestId++) {
+            poolWeights[requestPools[requestId]] += weights != null ? weights[requestId] : 1.0;
+        }
+    }
+
+    /**
+     * Connections by host ("host" or "host:port"), taken from numConn.
+     */
+    public HostPools setConnsPerHost(Map<String, Integer> connsPerHost) {
+        this.connsPerHost = new HashMap<>();
+        if (connsPerHost != null) {
+            connsPerHost.forEach((host, conns) -> this.connsPerHost.put(host.toLowerCase(), conns));
+        }
+        return this;
+    }
+
+    public int size() {
+        return origins.size();
+    }
+
+    public URI origin(int pool) {
+        return origins.get(pool);
+    }
+
+    public Proto proto(int pool) {
+        return protos.get(pool);
+    }
+
+    public Proto requestProto(int requestId) {
+        return protos.get(requestPools[requestId]);
+    }
+
+    /**
+     * Request ids of every pool, in the requests order.
+     */
+    public int[][] poolRequests() {
+        return IntStream.range(0, size())
+            .mapToObj(pool -> IntStream.range(0, requestPools.length).filter(requestId -> requestPools[requestId] == pool).toArray())
+            .toArray(int[][]::new);
+    }
+
+    /**
+     * Pool of every connection slot. The pools are interleaved, so the slots of a virtual user (consecutive) or the
+     * first slots of a ramp up spread over all the hosts.
+     */
+    public int[] slotPools(int numConn) {
+        final int[] conns = splitConns(numConn);
+        final int[] slotPools = new int[numConn];
+        final int[] given = new int[size()];
+        for (int slot = 0; slot < numConn; slot++) {
+            int next = -1;
+            double nextDeficit = Double.NEGATIVE_INFINITY;
+            for (int pool = 0; pool < given.length; pool++) {
+                final double deficit = conns[pool] * (slot + 1.0) / numConn - given[pool];
+                if (given[pool] < conns[pool] && deficit > nextDeficit) {
+                    next = pool;
+                    nextDeficit = deficit;
+                }
+            }
+            slotPools[slot] = next;
+            given[next]++;
+        }
+        if (size() > 1) {
+            for (int pool = 0; pool < size(); pool++) {
+                LOGGER.info("Host pool " + origin(pool) + ": " + conns[pool] + " conn(s)");
+                if (conns[pool] == 0) {
+                    LOGGER.warn("Host pool " + origin(pool) + " without connections: its requests will not be sent");
+                }
+            }
+        }
+        return slotPools;
+    }
+
+    private int[] splitConns(int numConn) {
+        final int[] conns = new int[size()];
+        final boolean[] weighted = new boolean[size()];
+        int left = numConn;
+        for (int pool = 0; pool < size(); pool++) {
+            final Integer hostConns = configuredConns(origin(pool));
+            if (hostConns != null) {
+                conns[pool] = Math.min(hostConns, left);
+                left -= conns[pool];
+            } else {
+                weighted[pool] = true;
+            }
+        }
+        double weightLeft = 0.0;
+        for (int pool = 0; pool < size(); pool++) {
+            weightLeft += weighted[pool] ? poolWeights[pool] : 0.0;
+        }
+        if (weightLeft <= 0.0) {
+            // every host is configured: the connections left are split between all of them
+            Arrays.fill(weighted, true);
+            weightLeft = Arrays.stream(poolWeights).sum();
+        }
+        // largest remainder
+        final double[] remainders = new double[size()];
+        int assigned = 0;
+        for (int pool = 0; pool < size(); pool++) {
+            if (weighted[pool]) {
+                final double share = left * poolWeights[pool] / weightLeft;
+                conns[pool] += (int) share;
+                remainders[pool] = share - (int) share;
+                assigned += (int) share;
+            }
+        }
+        for (; assigned < left; assigned++) {
+            int largest = -1;
+            for (int pool = 0; pool < size(); pool++) {
+                if (weighted[pool] && (largest < 0 || remainders[pool] > remainders[largest])) {
+                    largest = pool;
+                }
+            }
+            conns[largest]++;
+            remainders[largest] = -1.0;
+        }
+        // every weighted pool gets one connection at least, if numConn allows it
+        for (int pool = 0; pool < size(); pool++) {
+            if (weighted[pool] && poolWeights[pool] > 0.0 && conns[pool] == 0) {
+                int largest = pool;
+                for (int other = 0; other < size(); other++) {
+                    if (weighted[other] && conns[other] > conns[largest]) {
+                        largest = other;
+                    }
+                }
+                if (conns[largest] > 1) {
+                    conns[largest]--;
+                    conns[pool]++;
+                }
+            }
+        }
+        return conns;
+    }
+
+    private Integer configuredConns(URI origin) {
+        final Integer conns = connsPerHost.get(origin.getHost().toLowerCase() + ":" + origin.getPort());
+        return conns != null ? conns : connsPerHost.get(origin.getHost().toLowerCase());
+    }
+}
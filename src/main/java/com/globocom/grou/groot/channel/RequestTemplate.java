@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import com.globocom.grou.groot.channel.feeder.DataFeeder;
+import com.globocom.grou.groot.channel.feeder.FeederRequestRenderer;
+import com.globocom.grou.groot.channel.handler.EncodedHttpRequest;
+import com.globocom.grou.groot.loader.Proto;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.FullHttpRequest;
+
+/**
+ * Request definition used by the schedulers. Static HTTP/1 requests are encoded once into a pooled direct buffer
+ * and each write sends a retained duplicate of it, so there is no copy nor encoding per request. Requests that
+ * reference data feeder fields or value generators are rendered per write. File and synthetic bodies are never
+ * copied: only their headers are encoded, and the body is sent from the mapped file (or the file itself, on
+ * cleartext HTTP/1) or from the pre-filled block, one block at a time.
+ */
+public class RequestTemplate {
+
+    private final FullHttpRequest request;
+    private final EncodedHttpRequest encodedRequest;
+    private final FeederRequestRenderer renderer;
+    private final boolean preEncoded;
+
+    public RequestTemplate(FullHttpRequest request, Proto proto, DataFeeder feeder) {
+        this.request = request;
+        this.preEncoded = proto == Proto.HTTP || proto == Proto.HTTPS;
+        final boolean fileBody = request instanceof FileBodyHttpRequest;
+        final boolean syntheticBody = request instanceof SyntheticBodyHttpRequest;
+        // file and synthetic bodies are not templated
+        this.renderer = !fileBody && !syntheticBody && FeederRequestRenderer.hasPlaceholders(request, feeder != null) ?
+            new FeederRequestRenderer(request, feeder) : null;
+        if (!preEncoded || renderer != null) {
+            this.encodedRequest = null;
+        } else if (fileBody) {
+            final EncodedHttpRequest head = RequestUtils.encodeHead(request);
+            this.encodedRequest = proto == Proto.HTTP ?
+                head.withBodyFile(((FileBodyHttpRequest) request).file(), request.content().readableBytes()) :
+                head.withBody(PooledByteBufAllocator.DEFAULT, request.content().retainedDuplicate());
+        } else if (syntheticBody) {
+            this.encodedRequest = RequestUtils.encodeHead(request).withBodyInput(((SyntheticBodyHttpRequest) request)::newBodyInput);
+        } else {
+            this.encodedRequest = RequestUtils.encode(request);
+        }
+    }
+
+    public FullHttpRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the message to write, or null if the data feeder is over.
+     */
+    public Object newMessage() {
+        if (renderer != null) {
+            return preEncoded ? renderer.renderEncoded(PooledByteBufAllocator.DEFAULT) : renderer.renderFull(PooledByteBufAllocator.DEFAULT);
+        }
+        // the content is shared (read only), the headers are copied
+        return encodedRequest != null ? encodedRequest.retainedDuplicate() : request.replace(request.content().retainedDuplicate());
+    }
+
+    /**
+     * Releases the encoded request and the request content, once the test is over.
+     */
+    public void release() {
+        if (encodedRequest != null && encodedRequest.refCnt() > 0) {
+            encodedRequest.release();
+        }
+        if (request.refCnt() > 0) {
+            request.release();
+        }
+    }
+}
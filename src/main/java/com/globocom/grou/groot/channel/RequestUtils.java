@@ -18,23 +18,36 @@ package com.globocom.grou.groot.channel;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
 
+import com.globocom.grou.groot.channel.feeder.FeederTemplate;
+import com.globocom.grou.groot.channel.handler.EncodedHttpRequest;
 import com.globocom.grou.groot.test.properties.AuthProperty;
 import com.globocom.grou.groot.test.properties.BaseProperty;
 import com.globocom.grou.groot.test.properties.RequestProperty;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http2.HttpConversionUtil;
+import java.io.File;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.TreeSet;
 import org.apache.commons.logging.Log;
@@ -44,13 +57,16 @@ public class RequestUtils {
 
     private static final Log LOGGER = LogFactory.getLog(RequestUtils.class);
 
+    private static final ByteBuf HEADERS_END = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[] { '\r', '\n', '\r', '\n' }));
+    private static final double DEFAULT_COMPRESSION_RATIO = 3.0;
+
     public static String extractScheme(final BaseProperty property) {
         URI uri = null;
         if (property.getUri() != null) {
-            uri = URI.create(property.getUri());
+            uri = URI.create(FeederTemplate.maskPlaceholders(property.getUri()));
         }
         if (property.getRequests() != null && !property.getRequests().isEmpty()) {
-            uri = URI.create(property.getRequests().stream().findFirst().orElseThrow(IllegalArgumentException::new).getUri());
+            uri = URI.create(FeederTemplate.maskPlaceholders(property.getRequests().stream().findFirst().orElseThrow(IllegalArgumentException::new).getUri()));
         }
         return uri != null ? uri.getScheme() : null;
     }
@@ -65,14 +81,19 @@ public class RequestUtils {
         LOGGER.info(property);
 
         final FullHttpRequest[] requests = new FullHttpRequest[requestsProperties.size()];
+        final Map<String, ByteBuf> fileBodies = new HashMap<>();
+        final Map<String, ByteBuf> bodyBlocks = new HashMap<>();
         int requestId = 0;
         for (RequestProperty requestProperty: requestsProperties) {
             final String uriStr = requestProperty.getUri();
-            final URI uri = URI.create(uriStr);
+            final URI uri = URI.create(FeederTemplate.maskPlaceholders(uriStr));
             final HttpHeaders headers = new DefaultHttpHeaders()
                 .add(HOST, uri.getHost() + (uri.getPort() > 0 ? ":" + uri.getPort() : ""))
                 .add(HttpConversionUtil.ExtensionHeaderNames.SCHEME.text(), convertSchemeIfNecessary(uri.getScheme()));
             Optional.ofNullable(requestProperty.getHeaders()).orElse(Collections.emptyMap()).forEach(headers::add);
+            if (Boolean.FALSE.equals(property.getKeepAlive())) {
+                headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            }
             AuthProperty authProperty = Optional.ofNullable(requestProperty.getAuth()).orElse(new AuthProperty());
             final String credentials = authProperty.getCredentials();
             if (credentials != null && !credentials.isEmpty()) {
@@ -82,16 +103,95 @@ public class RequestUtils {
 
             HttpMethod method = HttpMethod.valueOf(requestProperty.getMethod());
             String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (FeederTemplate.hasPlaceholders(uriStr)) {
+                // the query usually selects the resource of the record
+                path = FeederTemplate.unmaskPlaceholders(uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path);
+            }
+            final String bodyFile = requestProperty.getBodyFile();
+            if (bodyFile != null) {
+                final ByteBuf mapped = fileBodies.computeIfAbsent(bodyFile, file -> FileBodyHttpRequest.map(new File(file)));
+                headers.set(HttpHeaderNames.CONTENT_LENGTH, mapped.readableBytes());
+                requests[requestId++] = new FileBodyHttpRequest(method, path, headers, new File(bodyFile), mapped.duplicate());
+                continue;
+            }
+            final Integer bodySize = requestProperty.getBodySize();
+            if (bodySize != null && bodySize > 0) {
+                final BodyPattern pattern = BodyPattern.valueOf(Optional.ofNullable(requestProperty.getBodyPattern()).orElse("zeros").toUpperCase());
+                final double compressionRatio = Optional.ofNullable(requestProperty.getBodyCompressionRatio()).orElse(DEFAULT_COMPRESSION_RATIO);
+                final ByteBuf block = bodyBlocks.computeIfAbsent(pattern.name() + compressionRatio, key -> pattern.newBlock(compressionRatio));
+                final boolean chunked = Boolean.TRUE.equals(requestProperty.getBodyChunked());
+                if (chunked) {
+                    headers.set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+                } else {
+                    headers.set(HttpHeaderNames.CONTENT_LENGTH, bodySize);
+                }
+                requests[requestId++] = new SyntheticBodyHttpRequest(method, path, headers, block, bodySize, chunked);
+                continue;
+            }
             final String bodyStr = requestProperty.getBody();
             ByteBuf body = bodyStr != null && !bodyStr.isEmpty() ?
                 Unpooled.copiedBuffer(bodyStr.getBytes(Charset.defaultCharset())) : Unpooled.buffer(0);
 
             requests[requestId] = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, path, body, headers, new DefaultHttpHeaders());
+            if (body.isReadable() && !headers.contains(HttpHeaderNames.CONTENT_LENGTH) && !HttpUtil.isTransferEncodingChunked(requests[requestId])) {
+                HttpUtil.setContentLength(requests[requestId], body.readableBytes());
+            }
             requestId++;
         }
+        // the synthetic bodies hold their own views of the blocks
+        bodyBlocks.values().forEach(ByteBuf::release);
         return requests;
     }
 
+    /**
+     * Encodes the HTTP/1.1 request once into a pooled direct buffer.
+     */
+    public static EncodedHttpRequest encode(final FullHttpRequest request) {
+        return encode(request.method(), request.retainedDuplicate());
+    }
+
+    /**
+     * Encodes only the request line and the headers (the body is sent apart).
+     */
+    public static EncodedHttpRequest encodeHead(final HttpRequest request) {
+        return encode(request.method(), new DefaultHttpRequest(request.protocolVersion(), request.method(), request.uri(), request.headers()));
+    }
+
+    private static EncodedHttpRequest encode(final HttpMethod method, final HttpRequest request) {
+        final EmbeddedChannel encoder = new EmbeddedChannel(new HttpRequestEncoder());
+        encoder.writeOutbound(request);
+        final ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer();
+        ByteBuf chunk;
+        while ((chunk = encoder.readOutbound()) != null) {
+            content.writeBytes(chunk);
+            chunk.release();
+        }
+        encoder.finishAndReleaseAll();
+        final int headersEnd = ByteBufUtil.indexOf(HEADERS_END, content) + 2;
+        return new EncodedHttpRequest(method, content, headersEnd);
+    }
+
+    /**
+     * Weights of the requests mix (in request id order), or null if no request defines a weight.
+     * Must be called after convertPropertyToHttpRequest.
+     */
+    public static double[] requestWeights(final BaseProperty property) {
+        final TreeSet<RequestProperty> requestsProperties = property.getRequests();
+        if (requestsProperties.stream().allMatch(requestProperty -> requestProperty.getWeight() == null)) {
+            return null;
+        }
+        return requestsProperties.stream()
+            .mapToDouble(requestProperty -> Optional.ofNullable(requestProperty.getWeight()).orElse(1)).toArray();
+    }
+
+    /**
+     * URIs of the requests (placeholders masked), in the requests order.
+     */
+    public static URI[] requestUris(final BaseProperty property) {
+        return property.getRequests().stream()
+            .map(requestProperty -> URI.create(FeederTemplate.maskPlaceholders(requestProperty.getUri()))).toArray(URI[]::new);
+    }
+
     private static TreeSet<RequestProperty> requestsProperty(BaseProperty properties) {
         RequestProperty singleRequestProperties = new RequestProperty();
         String uriStr = properties.getUri();
@@ -101,6 +201,11 @@ public class RequestUtils {
             singleRequestProperties.setUri(uriStr);
             singleRequestProperties.setMethod(properties.getMethod());
             singleRequestProperties.setBody(properties.getBody());
+            singleRequestProperties.setBodyFile(properties.getBodyFile());
+            singleRequestProperties.setBodySize(properties.getBodySize());
+            singleRequestProperties.setBodyPattern(properties.getBodyPattern());
+            singleRequestProperties.setBodyCompressionRatio(properties.getBodyCompressionRatio());
+            singleRequestProperties.setBodyChunked(properties.getBodyChunked());
             singleRequestProperties.setAuth(properties.getAuth());
             singleRequestProperties.setHeaders(properties.getHeaders());
         }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.EventLoop;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.resolver.dns.DefaultDnsCache;
+import io.netty.resolver.dns.DnsCache;
+import io.netty.resolver.dns.DnsCacheEntry;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Name resolution of the bootstrap: the netty async DNS resolver, with a cache (respecting the records TTL) shared
+ * by all the event loops. The connections to a host are spread round robin between all its addresses: the A and
+ * AAAA records, or the addresses of the resolve property, used instead of the DNS. The lookups are timed (the DNS
+ * phase), except the ones of IP literals, overridden hosts and cached hosts.
+ */
+public class RoundRobinAddressResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+
+    private final DnsCache cache = new DefaultDnsCache();
+    private final Map<String, AtomicInteger> nextAddress = new ConcurrentHashMap<>();
+    private final Map<String, List<InetAddress>> overrides = new HashMap<>();
+    private final MonitorService monitorService;
+
+    public RoundRobinAddressResolverGroup(Map<String, List<String>> resolve, MonitorService monitorService) throws IllegalArgumentException {
+        this.monitorService = monitorService;
+        if (resolve != null) {
+            resolve.forEach((host, addresses) -> overrides.put(host.toLowerCase(), toInetAddresses(host, addresses)));
+        }
+    }
+
+    private static List<InetAddress> toInetAddresses(String host, List<String> addresses) throws IllegalArgumentException {
+        final List<InetAddress> inetAddresses = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            final byte[] bytes = NetUtil.createByteArrayFromIpAddressString(address);
+            if (bytes == null) {
+                throw new IllegalArgumentException("resolve of " + host + ": " + address + " is not an IP address");
+            }
+            try {
+                // keeps the host name, so the socket address is still the host one
+                inetAddresses.add(InetAddress.getByAddress(host, bytes));
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("resolve of " + host + ": " + address + " is not an IP address");
+            }
+        }
+        return Collections.unmodifiableList(inetAddresses);
+    }
+
+    @Override
+    protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+        final DnsNameResolver dnsResolver = new DnsNameResolverBuilder((EventLoop) executor)
+            .channelType(BootstrapBuilder.getDatagramChannelClass())
+            .resolveCache(cache)
+            .build();
+        return new RoundRobinNameResolver(executor, dnsResolver).asAddressResolver();
+    }
+
+    private InetAddress next(String host, List<InetAddress> addresses) {
+        if (addresses.size() == 1) {
+            return addresses.get(0);
+        }
+        final int index = nextAddress.computeIfAbsent(host, key -> new AtomicInteger()).getAndIncrement();
+        return addresses.get((index & Integer.MAX_VALUE) % addresses.size());
+    }
+
+    private final class RoundRobinNameResolver extends InetNameResolver {
+
+        private final DnsNameResolver dnsResolver;
+
+        private RoundRobinNameResolver(EventExecutor executor, DnsNameResolver dnsResolver) {
+            super(executor);
+            this.dnsResolver = dnsResolver;
+        }
+
+        @Override
+        protected void doResolve(String inetHost, Promise<InetAddress> promise) throws Exception {
+            final List<InetAddress> addresses = overrides.get(inetHost.toLowerCase());
+            if (addresses != null) {
+                promise.setSuccess(next(inetHost, addresses));
+                return;
+            }
+            final boolean literal = NetUtil.isValidIpV4Address(inetHost) || NetUtil.isValidIpV6Address(inetHost);
+            // a cache hit is not a lookup
+            final boolean timed = !literal && !isCached(inetHost);
+            final long start = System.nanoTime();
+            dnsResolver.resolveAll(inetHost).addListener((FutureListener<List<InetAddress>>) future -> {
+                if (future.isSuccess()) {
+                    if (timed) {
+                        monitorService.sendDnsTime(start);
+                    }
+                    promise.trySuccess(next(inetHost, future.getNow()));
+                } else {
+                    promise.tryFailure(future.cause());
+                }
+            });
+        }
+
+        private boolean isCached(String inetHost) {
+            final List<? extends DnsCacheEntry> entries = cache.get(inetHost, null);
+            return entries != null && !entries.isEmpty();
+        }
+
+        @Override
+        protected void doResolveAll(String inetHost, Promise<List<InetAddress>> promise) throws Exception {
+            final List<InetAddress> addresses = overrides.get(inetHost.toLowerCase());
+            if (addresses != null) {
+                promise.setSuccess(addresses);
+                return;
+            }
+            dnsResolver.resolveAll(inetHost, promise);
+        }
+
+        @Override
+        public void close() {
+            dnsResolver.close();
+        }
+    }
+}
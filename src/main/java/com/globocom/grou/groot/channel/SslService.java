@@ -28,7 +28,16 @@ import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslProvider;
 import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.AttributeKey;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.stereotype.Service;
@@ -38,29 +47,86 @@ public class SslService {
 
     private static final Log LOGGER = LogFactory.getLog(SslService.class);
 
+    /**
+     * Resume the TLS sessions of the channel. Otherwise the session is invalidated after the handshake, so every
+     * connection does a full handshake.
+     */
+    public static final AttributeKey<Boolean> SESSION_RESUMPTION_ATTR = AttributeKey.newInstance("sessionResumption");
+
+    /**
+     * TLS protocol, curve and cipher of the channel (see {@link TlsProfile}).
+     */
+    public static final AttributeKey<TlsProfile> TLS_PROFILE_ATTR = AttributeKey.newInstance("tlsProfile");
+
+    /**
+     * Ids of the sessions established during the test (see {@link #newSessionIds(SslContext)}): a handshake that
+     * ends with a known session id resumed that session.
+     */
+    public static final AttributeKey<Set<ByteBuffer>> SESSION_IDS_ATTR = AttributeKey.newInstance("sessionIds");
+
+    private final Map<Boolean, SslContext> sslContexts = new ConcurrentHashMap<>();
+
     public SslContext sslContext(boolean ssl) {
-        if (ssl) {
-            try {
-                final SslProvider provider = OpenSsl.isAlpnSupported() ? SslProvider.OPENSSL : SslProvider.JDK;
-                return SslContextBuilder.forClient()
-                    .sslProvider(provider)
-                    /* NOTE: the cipher filter may not include all ciphers required by the HTTP/2 specification.
-                     * Please refer to the HTTP/2 specification for cipher requirements. */
-                    .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
-                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
-                    .applicationProtocolConfig(new ApplicationProtocolConfig(
-                        Protocol.ALPN,
-                        // NO_ADVERTISE is currently the only mode supported by both OpenSsl and JDK providers.
-                        SelectorFailureBehavior.NO_ADVERTISE,
-                        // ACCEPT is currently the only mode supported by both OpenSsl and JDK providers.
-                        SelectedListenerFailureBehavior.ACCEPT,
-                        ApplicationProtocolNames.HTTP_2,
-                        ApplicationProtocolNames.HTTP_1_1))
-                    .build();
-            } catch (SSLException e) {
-                LOGGER.error(e.getMessage(), e);
+        return sslContext(ssl, false);
+    }
+
+    /**
+     * Client context, built once by provider (the context setup, native included, is expensive) and shared by all
+     * the channels. The session resumption and the TLS profiles require the JDK provider: the OpenSSL client of
+     * this netty version has no session cache, nor engine algorithm constraints.
+     */
+    public SslContext sslContext(boolean ssl, boolean jdkProvider) {
+        return ssl ? sslContexts.computeIfAbsent(jdkProvider, this::newSslContext) : null;
+    }
+
+    /**
+     * Forgets the sessions cached by the context: a test starts without sessions to resume.
+     */
+    public static void invalidateSessions(SslContext sslContext) {
+        final SSLSessionContext sessionContext = sslContext.sessionContext();
+        for (byte[] sessionId : Collections.list(sessionContext.getIds())) {
+            final SSLSession session = sessionContext.getSession(sessionId);
+            if (session != null) {
+                session.invalidate();
             }
         }
+    }
+
+    /**
+     * Session ids seen by the channels, bounded as the session cache of the context: a session evicted from the
+     * cache can't be resumed anymore.
+     */
+    public static Set<ByteBuffer> newSessionIds(SslContext sslContext) {
+        final int cacheSize = sslContext.sessionContext().getSessionCacheSize();
+        return Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<ByteBuffer, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+                return cacheSize > 0 && size() > cacheSize;
+            }
+        }));
+    }
+
+    private SslContext newSslContext(boolean jdkProvider) {
+        try {
+            final SslProvider provider = OpenSsl.isAlpnSupported() && !jdkProvider ? SslProvider.OPENSSL : SslProvider.JDK;
+            return SslContextBuilder.forClient()
+                .sslProvider(provider)
+                /* NOTE: the cipher filter may not include all ciphers required by the HTTP/2 specification.
+                 * Please refer to the HTTP/2 specification for cipher requirements. */
+                .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .applicationProtocolConfig(new ApplicationProtocolConfig(
+                    Protocol.ALPN,
+                    // NO_ADVERTISE is currently the only mode supported by both OpenSsl and JDK providers.
+                    SelectorFailureBehavior.NO_ADVERTISE,
+                    // ACCEPT is currently the only mode supported by both OpenSsl and JDK providers.
+                    SelectedListenerFailureBehavior.ACCEPT,
+                    ApplicationProtocolNames.HTTP_2,
+                    ApplicationProtocolNames.HTTP_1_1))
+                .build();
+        } catch (SSLException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
         return null;
     }
 
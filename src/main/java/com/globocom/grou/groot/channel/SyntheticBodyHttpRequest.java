@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Request with a generated body of any size. The content is a composite of views of one pre-filled block, so the
+ * body is never materialized: HTTP/1 writes stream it block by block as the channel becomes writable (in chunks, if
+ * chunked) and HTTP/2 sends it as DATA frames under flow control.
+ */
+public class SyntheticBodyHttpRequest extends DefaultFullHttpRequest {
+
+    private static final ByteBuf CRLF = Unpooled.unreleasableBuffer(
+        Unpooled.directBuffer(2).writeBytes("\r\n".getBytes(CharsetUtil.US_ASCII)));
+    private static final ByteBuf LAST_CHUNK = Unpooled.unreleasableBuffer(
+        Unpooled.directBuffer(5).writeBytes("0\r\n\r\n".getBytes(CharsetUtil.US_ASCII)));
+
+    private final ByteBuf block;
+    private final boolean chunked;
+
+    SyntheticBodyHttpRequest(HttpMethod method, String uri, HttpHeaders headers, ByteBuf block, int size, boolean chunked) {
+        super(HttpVersion.HTTP_1_1, method, uri, repeat(block, size), headers, new DefaultHttpHeaders());
+        this.block = block;
+        this.chunked = chunked;
+    }
+
+    /**
+     * The HTTP/1.1 body, read one block at a time (framed in chunks if chunked) by the ChunkedWriteHandler.
+     */
+    public ChunkedInput<ByteBuf> newBodyInput() {
+        return new BodyInput();
+    }
+
+    private static ByteBuf chunkHeader(ByteBufAllocator alloc, int length) {
+        return alloc.directBuffer(10).writeBytes((Integer.toHexString(length) + "\r\n").getBytes(CharsetUtil.US_ASCII));
+    }
+
+    private static ByteBuf repeat(ByteBuf block, int size) {
+        final CompositeByteBuf content = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        final int blockSize = block.readableBytes();
+        for (int offset = 0; offset < size; offset += blockSize) {
+            content.addComponent(true, block.retainedSlice(block.readerIndex(), Math.min(blockSize, size - offset)));
+        }
+        return content;
+    }
+
+    /**
+     * Holds the block until the body is written (or the write fails), as the test may end meanwhile.
+     */
+    private final class BodyInput implements ChunkedInput<ByteBuf> {
+
+        private final int size = content().readableBytes();
+        private int offset = 0;
+        private boolean closed = false;
+
+        private BodyInput() {
+            block.retain();
+        }
+
+        @Override
+        public boolean isEndOfInput() {
+            return offset >= size;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                block.release();
+            }
+        }
+
+        @Deprecated
+        @Override
+        public ByteBuf readChunk(ChannelHandlerContext ctx) {
+            return readChunk(ctx.alloc());
+        }
+
+        @Override
+        public ByteBuf readChunk(ByteBufAllocator alloc) {
+            if (isEndOfInput()) {
+                return null;
+            }
+            final int length = Math.min(block.readableBytes(), size - offset);
+            final ByteBuf data = block.retainedSlice(block.readerIndex(), length);
+            offset += length;
+            if (!chunked) {
+                return data;
+            }
+            final CompositeByteBuf chunk = alloc.compositeDirectBuffer(4)
+                .addComponents(true, chunkHeader(alloc, length), data, CRLF.duplicate());
+            if (isEndOfInput()) {
+                chunk.addComponent(true, LAST_CHUNK.duplicate());
+            }
+            return chunk;
+        }
+
+        @Override
+        public long length() {
+            return size;
+        }
+
+        @Override
+        public long progress() {
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import java.security.AlgorithmConstraints;
+import java.security.AlgorithmParameters;
+import java.security.CryptoPrimitive;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * TLS protocol version, key exchange curve (named group) and cipher suite of the connections. Null means the
+ * engine default. Applied on every new SSLEngine, so it requires the JDK provider (the curves are restricted by
+ * the engine algorithm constraints).
+ */
+public class TlsProfile {
+
+    private static final Pattern NAMED_GROUP = Pattern.compile("(?i)(secp|sect|brainpool|x25519|x448|ffdhe).*");
+
+    private final int id;
+    private final String protocol;
+    private final String curve;
+    private final String cipher;
+
+    TlsProfile(int id, String protocol, String curve, String cipher) {
+        this.id = id;
+        this.protocol = protocol;
+        this.curve = curve;
+        this.cipher = cipher;
+    }
+
+    /**
+     * Every combination of the protocols, curves and ciphers (an empty list means the engine default), except the
+     * ciphers of another protocol version: the TLS 1.3 suites only go with TLSv1.3, and vice versa.
+     */
+    public static List<TlsProfile> matrix(List<String> protocols, List<String> curves, List<String> ciphers) {
+        final List<TlsProfile> profiles = new ArrayList<>();
+        if (isEmpty(protocols) && isEmpty(curves) && isEmpty(ciphers)) {
+            return profiles;
+        }
+        for (String protocol : orDefault(protocols)) {
+            for (String curve : orDefault(curves)) {
+                for (String cipher : orDefault(ciphers)) {
+                    if (protocol == null || cipher == null || "TLSv1.3".equals(protocol) == isTls13Cipher(cipher)) {
+                        profiles.add(new TlsProfile(profiles.size(), protocol, curve, cipher));
+                    }
+                }
+            }
+        }
+        return profiles;
+    }
+
+    private static boolean isEmpty(List<String> values) {
+        return values == null || values.isEmpty();
+    }
+
+    private static List<String> orDefault(List<String> values) {
+        return isEmpty(values) ? Collections.singletonList(null) : values;
+    }
+
+    /**
+     * TLS 1.3 suites don't name the key exchange and authentication (no "_WITH_").
+     */
+    static boolean isTls13Cipher(String cipher) {
+        return cipher.startsWith("TLS_") && !cipher.contains("_WITH_");
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String name() {
+        return Stream.of(protocol, curve, cipher)
+            .map(value -> value != null ? value : "default")
+            .collect(Collectors.joining(" "));
+    }
+
+    public void apply(SSLEngine engine) {
+        final SSLParameters parameters = engine.getSSLParameters();
+        if (protocol != null) {
+            parameters.setProtocols(new String[] { protocol });
+        }
+        if (cipher != null) {
+            parameters.setCipherSuites(new String[] { cipher });
+        }
+        if (curve != null) {
+            parameters.setAlgorithmConstraints(new CurveConstraints(curve));
+        }
+        engine.setSSLParameters(parameters);
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+
+    /**
+     * Denies the key agreement with any named group except the curve. The JDK default constraints still apply.
+     */
+    private static final class CurveConstraints implements AlgorithmConstraints {
+
+        private final String curve;
+
+        private CurveConstraints(String curve) {
+            this.curve = curve;
+        }
+
+        @Override
+        public boolean permits(Set<CryptoPrimitive> primitives, String algorithm, AlgorithmParameters parameters) {
+            return !primitives.contains(CryptoPrimitive.KEY_AGREEMENT)
+                || !NAMED_GROUP.matcher(algorithm).matches()
+                || curve.equalsIgnoreCase(algorithm);
+        }
+
+        @Override
+        public boolean permits(Set<CryptoPrimitive> primitives, Key key) {
+            return true;
+        }
+
+        @Override
+        public boolean permits(Set<CryptoPrimitive> primitives, String algorithm, Key key, AlgorithmParameters parameters) {
+            return true;
+        }
+    }
+}
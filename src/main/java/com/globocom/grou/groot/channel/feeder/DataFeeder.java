@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.feeder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ByteProcessor;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Records of a CSV (with a header line) or JSONL file, memory-mapped and indexed by line once. The fields are copied
+ * straight from the mapped file into the request buffers. CSV fields may be quoted; JSONL values are copied raw
+ * (strings without the quotes, escapes as is). Files are limited to 2 GB.
+ */
+public class DataFeeder {
+
+    private static final Log LOGGER = LogFactory.getLog(DataFeeder.class);
+
+    private final MappedByteBuffer mapped;
+    private final boolean csv;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final FeederStrategy strategy;
+    private final AtomicLong nextBlock = new AtomicLong(0L);
+    private final AtomicLong usedRecords = new AtomicLong(0L);
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+
+    private Runnable onExhausted = () -> { };
+
+    private final FastThreadLocal<Cursor> cursors = new FastThreadLocal<Cursor>() {
+        @Override
+        protected Cursor initialValue() {
+            return new Cursor(nextBlock, Unpooled.wrappedBuffer(mapped.duplicate()));
+        }
+    };
+
+    public DataFeeder(final Path path, final FeederStrategy strategy) throws IllegalArgumentException {
+        this.strategy = strategy;
+        final String fileName = path.getFileName().toString().toLowerCase();
+        this.csv = !(fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson") || fileName.endsWith(".json"));
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("feeder " + path + " is larger than 2 GB");
+            }
+            mapped = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("feeder " + path + " unavailable: " + e.getMessage(), e);
+        }
+
+        final ByteBuf data = Unpooled.wrappedBuffer(mapped.duplicate());
+        int[] starts = new int[1024];
+        int[] ends = new int[1024];
+        int numLines = 0;
+        int start = 0;
+        final int size = data.writerIndex();
+        while (start < size) {
+            int lineFeed = data.forEachByte(start, size - start, ByteProcessor.FIND_LF);
+            int next = lineFeed < 0 ? size : lineFeed + 1;
+            int end = lineFeed < 0 ? size : lineFeed;
+            if (end > start && data.getByte(end - 1) == '\r') {
+                end--;
+            }
+            if (end > start) {
+                if (numLines == starts.length) {
+                    starts = Arrays.copyOf(starts, numLines << 1);
+                    ends = Arrays.copyOf(ends, numLines << 1);
+                }
+                starts[numLines] = start;
+                ends[numLines] = end;
+                numLines++;
+            }
+            start = next;
+        }
+        int firstRecord = 0;
+        if (csv && numLines > 0) {
+            // the header names are parsed as fields: they may be quoted, with commas inside
+            final ByteBuf name = Unpooled.buffer();
+            for (int column = 0, index = starts[0]; index <= ends[0]; column++) {
+                name.clear();
+                writeCsvField(data, name, index, ends[0], 0);
+                columns.put(name.toString(CharsetUtil.UTF_8).trim(), column);
+                index = skipCsvField(data, index, ends[0]);
+            }
+            firstRecord = 1;
+        }
+        if (numLines - firstRecord <= 0) {
+            throw new IllegalArgumentException("feeder " + path + " has no records");
+        }
+        lineStarts = Arrays.copyOfRange(starts, firstRecord, numLines);
+        lineEnds = Arrays.copyOfRange(ends, firstRecord, numLines);
+        LOGGER.info("Using feeder " + path + ": " + lineStarts.length + " records (" + strategy.name().toLowerCase() + ")");
+    }
+
+    public int size() {
+        return lineStarts.length;
+    }
+
+    /**
+     * Called once, when the last record of a sequential feeder is taken.
+     */
+    public DataFeeder onExhausted(Runnable onExhausted) {
+        this.onExhausted = onExhausted;
+        return this;
+    }
+
+    /**
+     * Returns the next record of the current event loop, or -1 if there are no more.
+     */
+    public int nextRecord() {
+        final int size = lineStarts.length;
+        final int record = strategy.next(cursors.get(), size);
+        // the blocks of a sequential feeder are counted when their last record is taken (whatever the loop)
+        if (strategy == FeederStrategy.SEQUENTIAL && record >= 0 && ((record + 1) % Cursor.BLOCK_SIZE == 0 || record == size - 1)
+            && usedRecords.addAndGet(record % Cursor.BLOCK_SIZE + 1) == size) {
+            onExhausted.run();
+        }
+        return record;
+    }
+
+    /**
+     * Resolves a field name: the CSV column index, or the JSONL key.
+     */
+    Field field(String name) throws IllegalArgumentException {
+        if (csv) {
+            final Integer column = columns.get(name);
+            if (column == null) {
+                throw new IllegalArgumentException("feeder column " + name + " not found");
+            }
+            return new Field(column, null);
+        }
+        return new Field(-1, name.getBytes(CharsetUtil.UTF_8));
+    }
+
+    /**
+     * Copies the field value of the record into the buffer (nothing if it's missing).
+     */
+    void writeField(final ByteBuf out, int record, final Field field) {
+        final ByteBuf data = cursors.get().data;
+        if (csv) {
+            writeCsvField(data, out, lineStarts[record], lineEnds[record], field.column);
+        } else {
+            writeJsonField(data, out, lineStarts[record], lineEnds[record], field.key);
+        }
+    }
+
+    private static void writeCsvField(final ByteBuf data, final ByteBuf out, int start, int end, int column) {
+        int index = start;
+        for (int current = 0; current < column; current++) {
+            index = skipCsvField(data, index, end);
+            if (index > end) {
+                return;
+            }
+        }
+        if (index < end && data.getByte(index) == '"') {
+            index++;
+            while (index < end) {
+                int quote = data.indexOf(index, end, (byte) '"');
+                if (quote < 0) {
+                    quote = end;
+                }
+                out.writeBytes(data, index, quote - index);
+                if (quote + 1 < end && data.getByte(quote + 1) == '"') {
+                    out.writeByte('"');
+                    index = quote + 2;
+                } else {
+                    return;
+                }
+            }
+        } else {
+            int comma = data.indexOf(index, end, (byte) ',');
+            out.writeBytes(data, index, (comma < 0 ? end : comma) - index);
+        }
+    }
+
+    /**
+     * Returns the start of the next field, or end + 1 if it's the last one.
+     */
+    private static int skipCsvField(final ByteBuf data, int index, int end) {
+        if (index < end && data.getByte(index) == '"') {
+            index++;
+            while (index < end) {
+                if (data.getByte(index) == '"') {
+                    if (index + 1 < end && data.getByte(index + 1) == '"') {
+                        index += 2;
+                        continue;
+                    }
+                    index++;
+                    break;
+                }
+                index++;
+            }
+        }
+        final int comma = index < end ? data.indexOf(index, end, (byte) ',') : -1;
+        return comma < 0 ? end + 1 : comma + 1;
+    }
+
+    private static void writeJsonField(final ByteBuf data, final ByteBuf out, int start, int end, byte[] key) {
+        int index = data.indexOf(start, end, (byte) '{');
+        if (index < 0) {
+            return;
+        }
+        index++;
+        while (index < end) {
+            index = skipWhitespaces(data, index, end);
+            if (index >= end || data.getByte(index) != '"') {
+                return;
+            }
+            final int keyEnd = stringEnd(data, index + 1, end);
+            final boolean matches = keyEnd - index - 1 == key.length && equals(data, index + 1, key);
+            index = skipWhitespaces(data, keyEnd + 1, end);
+            if (index >= end || data.getByte(index) != ':') {
+                return;
+            }
+            final int valueStart = skipWhitespaces(data, index + 1, end);
+            final int valueEnd = valueEnd(data, valueStart, end);
+            if (matches) {
+                if (valueStart < valueEnd && data.getByte(valueStart) == '"') {
+                    out.writeBytes(data, valueStart + 1, Math.max(0, valueEnd - valueStart - 2));
+                } else {
+                    out.writeBytes(data, valueStart, valueEnd - valueStart);
+                }
+                return;
+            }
+            index = skipWhitespaces(data, valueEnd, end);
+            if (index >= end || data.getByte(index) != ',') {
+                return;
+            }
+            index++;
+        }
+    }
+
+    private static int skipWhitespaces(final ByteBuf data, int index, int end) {
+        while (index < end && Character.isWhitespace(data.getByte(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the closing quote of the string started just before index.
+     */
+    private static int stringEnd(final ByteBuf data, int index, int end) {
+        while (index < end) {
+            final byte b = data.getByte(index);
+            if (b == '\\') {
+                index += 2;
+            } else if (b == '"') {
+                return index;
+            } else {
+                index++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Returns the end (exclusive, without trailing whitespaces) of the value started at index.
+     */
+    private static int valueEnd(final ByteBuf data, int index, int end) {
+        if (index < end && data.getByte(index) == '"') {
+            return Math.min(end, stringEnd(data, index + 1, end) + 1);
+        }
+        int depth = 0;
+        int last = index;
+        while (index < end) {
+            final byte b = data.getByte(index);
+            if (b == '"') {
+                index = stringEnd(data, index + 1, end);
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (b == ',' && depth == 0) {
+                break;
+            }
+            if (!Character.isWhitespace(b)) {
+                last = index + 1;
+            }
+            index++;
+        }
+        return last;
+    }
+
+    private static boolean equals(final ByteBuf data, int index, byte[] bytes) {
+        for (int offset = 0; offset < bytes.length; offset++) {
+            if (data.getByte(index + offset) != bytes[offset]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record field reference: CSV column or JSONL key.
+     */
+    static final class Field {
+
+        private final int column;
+        private final byte[] key;
+
+        private Field(int column, byte[] key) {
+            this.column = column;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Position of one event loop in the records, and its own view of the mapped file. The positions are taken by
+     * blocks from a shared counter, so only the loops really sending requests consume records.
+     */
+    static final class Cursor {
+
+        private static final long BLOCK_SIZE = 64L;
+
+        final ByteBuf data;
+        private final AtomicLong nextBlock;
+        private long next = 0L;
+        private long blockEnd = 0L;
+
+        Cursor(AtomicLong nextBlock, ByteBuf data) {
+            this.nextBlock = nextBlock;
+            this.data = data;
+        }
+
+        /**
+         * Next position of the records sequence shared by all the loops (not bounded by the records count).
+         */
+        long next() {
+            if (next == blockEnd) {
+                next = nextBlock.getAndAdd(BLOCK_SIZE);
+                blockEnd = next + BLOCK_SIZE;
+            }
+            return next++;
+        }
+    }
+}
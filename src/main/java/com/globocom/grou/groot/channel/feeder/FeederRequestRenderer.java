@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.feeder;
+
+import com.globocom.grou.groot.channel.handler.EncodedHttpRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import java.util.Map;
+
+/**
+ * Renders a request whose URI, headers or body reference data feeder fields or value generators. HTTP/1 requests
+ * are rendered straight into pooled buffers (head and body, joined without copy); HTTP/2 ones into a FullHttpRequest.
+ */
+public class FeederRequestRenderer {
+
+    private static final byte[] HTTP_1_1 = " HTTP/1.1\r\n".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] HEADER_SEPARATOR = ": ".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] CRLF = "\r\n".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "content-length: ".getBytes(CharsetUtil.US_ASCII);
+
+    private final DataFeeder feeder;
+    private final HttpMethod method;
+    private final byte[] methodBytes;
+    private final FeederTemplate uri;
+    private final AsciiString[] headerNames;
+    private final FeederTemplate[] headerValues;
+    private final FeederTemplate body;
+
+    /**
+     * The data feeder is optional (only value generators).
+     */
+    public FeederRequestRenderer(final FullHttpRequest request, final DataFeeder feeder) throws IllegalArgumentException {
+        this.feeder = feeder;
+        this.method = request.method();
+        this.methodBytes = (method.name() + " ").getBytes(CharsetUtil.US_ASCII);
+        this.uri = new FeederTemplate(request.uri(), feeder);
+        final HttpHeaders headers = request.headers();
+        headerNames = new AsciiString[headers.size()];
+        headerValues = new FeederTemplate[headers.size()];
+        int index = 0;
+        for (Map.Entry<String, String> header : headers) {
+            if (!HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(header.getKey())) {
+                headerNames[index] = AsciiString.of(header.getKey());
+                headerValues[index] = new FeederTemplate(header.getValue(), feeder);
+                index++;
+            }
+        }
+        final String bodyStr = request.content().toString(CharsetUtil.UTF_8);
+        this.body = bodyStr.isEmpty() ? null : new FeederTemplate(bodyStr, feeder);
+    }
+
+    /**
+     * Returns true if the request has generators, or fields when there is a data feeder.
+     */
+    public static boolean hasPlaceholders(final FullHttpRequest request, boolean withFeeder) {
+        if (FeederTemplate.hasPlaceholders(request.uri(), withFeeder)) {
+            return true;
+        }
+        for (Map.Entry<String, String> header : request.headers()) {
+            if (FeederTemplate.hasPlaceholders(header.getValue(), withFeeder)) {
+                return true;
+            }
+        }
+        return FeederTemplate.hasPlaceholders(request.content().toString(CharsetUtil.UTF_8), withFeeder);
+    }
+
+    /**
+     * Returns the HTTP/1.1 request of the next record, or null if the feeder is over.
+     */
+    public EncodedHttpRequest renderEncoded(final ByteBufAllocator alloc) {
+        final int record = feeder != null ? feeder.nextRecord() : 0;
+        if (record < 0) {
+            return null;
+        }
+        final ByteBuf head = alloc.directBuffer();
+        head.writeBytes(methodBytes);
+        uri.render(head, record);
+        head.writeBytes(HTTP_1_1);
+        for (int index = 0; index < headerNames.length && headerNames[index] != null; index++) {
+            ByteBufUtil.copy(headerNames[index], head);
+            head.writeBytes(HEADER_SEPARATOR);
+            headerValues[index].render(head, record);
+            head.writeBytes(CRLF);
+        }
+        if (body == null) {
+            final int headersEnd = head.readableBytes();
+            head.writeBytes(CRLF);
+            return new EncodedHttpRequest(method, head, headersEnd);
+        }
+        final ByteBuf content = alloc.directBuffer();
+        body.render(content, record);
+        head.writeBytes(CONTENT_LENGTH);
+        ByteBufUtil.writeAscii(head, Integer.toString(content.readableBytes()));
+        head.writeBytes(CRLF);
+        final int headersEnd = head.readableBytes();
+        head.writeBytes(CRLF);
+        return new EncodedHttpRequest(method, alloc.compositeDirectBuffer(2).addComponents(true, head, content), headersEnd);
+    }
+
+    /**
+     * Returns the request (to be converted to HTTP/2) of the next record, or null if the feeder is over.
+     */
+    public FullHttpRequest renderFull(final ByteBufAllocator alloc) {
+        final int record = feeder != null ? feeder.nextRecord() : 0;
+        if (record < 0) {
+            return null;
+        }
+        final ByteBuf buffer = alloc.heapBuffer();
+        try {
+            uri.render(buffer, record);
+            final String path = buffer.toString(CharsetUtil.UTF_8);
+            final HttpHeaders headers = new DefaultHttpHeaders();
+            for (int index = 0; index < headerNames.length && headerNames[index] != null; index++) {
+                buffer.clear();
+                headerValues[index].render(buffer, record);
+                headers.add(headerNames[index], buffer.toString(CharsetUtil.UTF_8));
+            }
+            final ByteBuf content = alloc.directBuffer();
+            if (body != null) {
+                body.render(content, record);
+                headers.set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+            }
+            return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, path, content, headers, new DefaultHttpHeaders());
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.feeder;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order in which the records of a data feeder are used. The sequential and circular strategies share one sequence
+ * between the event loops, taken by blocks of records, so there is almost no contention.
+ */
+public enum FeederStrategy {
+
+    /**
+     * Every record once. When they are over, the requests are not sent anymore and the test finishes as soon as
+     * the requests in flight are answered.
+     */
+    SEQUENTIAL {
+        @Override
+        int next(DataFeeder.Cursor cursor, int size) {
+            final long record = cursor.next();
+            return record < size ? (int) record : -1;
+        }
+    },
+
+    /**
+     * A random record each time.
+     */
+    RANDOM {
+        @Override
+        int next(DataFeeder.Cursor cursor, int size) {
+            return ThreadLocalRandom.current().nextInt(size);
+        }
+    },
+
+    /**
+     * Every record in order, restarting from the first when they are over.
+     */
+    CIRCULAR {
+        @Override
+        int next(DataFeeder.Cursor cursor, int size) {
+            return (int) (cursor.next() % size);
+        }
+    };
+
+    /**
+     * Returns the next record, or -1 if there are no more.
+     */
+    abstract int next(DataFeeder.Cursor cursor, int size);
+}
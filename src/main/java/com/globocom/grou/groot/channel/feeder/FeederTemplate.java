@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.feeder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Text with ${field} (data feeder) and ${__generator(args)} placeholders, compiled once into literal bytes and
+ * segments, so rendering is just writing bytes into the request buffer. Without a data feeder, ${field}
+ * placeholders are kept as literal text.
+ */
+public class FeederTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+    private static final Pattern MASKED_PLACEHOLDER = Pattern.compile("\\$%7B([^%]+)%7D");
+
+    private final byte[][] literals;
+    private final Segment[] segments;
+
+    /**
+     * Literal i is followed by segment i (the last literal has no segment).
+     */
+    FeederTemplate(final String text, final DataFeeder feeder) throws IllegalArgumentException {
+        final List<byte[]> literalList = new ArrayList<>();
+        final List<Segment> segmentList = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        final Matcher matcher = PLACEHOLDER.matcher(text);
+        int start = 0;
+        while (matcher.find()) {
+            literal.append(text, start, matcher.start());
+            final String expression = matcher.group(1).trim();
+            if (ValueGenerator.isGenerator(expression)) {
+                segmentList.add(ValueGenerator.compile(expression));
+            } else if (feeder != null) {
+                final DataFeeder.Field field = feeder.field(expression);
+                segmentList.add((out, record) -> feeder.writeField(out, record, field));
+            } else {
+                literal.append(matcher.group());
+                start = matcher.end();
+                continue;
+            }
+            literalList.add(literal.toString().getBytes(CharsetUtil.UTF_8));
+            literal.setLength(0);
+            start = matcher.end();
+        }
+        literal.append(text.substring(start));
+        literalList.add(literal.toString().getBytes(CharsetUtil.UTF_8));
+        literals = literalList.toArray(new byte[0][]);
+        segments = segmentList.toArray(new Segment[0]);
+    }
+
+    /**
+     * Returns true if the text has placeholders to render: generators, or fields when there is a data feeder.
+     */
+    public static boolean hasPlaceholders(final CharSequence text, boolean withFeeder) {
+        if (text == null) {
+            return false;
+        }
+        final Matcher matcher = PLACEHOLDER.matcher(text);
+        while (matcher.find()) {
+            if (withFeeder || ValueGenerator.isGenerator(matcher.group(1).trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean hasPlaceholders(final CharSequence text) {
+        return text != null && PLACEHOLDER.matcher(text).find();
+    }
+
+    /**
+     * Percent-encodes the braces of the placeholders, so the URI can be parsed by java.net.URI.
+     */
+    public static String maskPlaceholders(final String uri) {
+        return uri == null ? null : PLACEHOLDER.matcher(uri).replaceAll("\\$%7B$1%7D");
+    }
+
+    public static String unmaskPlaceholders(final String uri) {
+        return uri == null ? null : MASKED_PLACEHOLDER.matcher(uri).replaceAll("\\${$1}");
+    }
+
+    void render(final ByteBuf out, int record) {
+        for (int index = 0; index < segments.length; index++) {
+            out.writeBytes(literals[index]);
+            segments[index].write(out, record);
+        }
+        out.writeBytes(literals[segments.length]);
+    }
+
+    /**
+     * Writes the value of a placeholder. The record is the data feeder one (ignored by the generators).
+     */
+    interface Segment {
+
+        void write(ByteBuf out, int record);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.feeder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inline value generators, referenced in URIs, headers and bodies as ${__name(args)}. Each placeholder is compiled
+ * once into a segment that writes the value straight into the request buffer (no String nor formatting per request).
+ */
+public enum ValueGenerator {
+
+    /**
+     * ${__counter()} or ${__counter(start)}: unique number, increasing per event loop. Each placeholder has its own
+     * counter.
+     */
+    COUNTER(0, 1) {
+        @Override
+        FeederTemplate.Segment compile(final long[] args) {
+            final BlockCounter counter = new BlockCounter(args.length > 0 ? args[0] : 0L);
+            return (out, record) -> writeDecimal(out, counter.next());
+        }
+    },
+
+    /**
+     * ${__random(min,max)}: random number between min and max (inclusive).
+     */
+    RANDOM(2, 2) {
+        @Override
+        FeederTemplate.Segment compile(final long[] args) {
+            final long min = args[0];
+            final long max = args[1];
+            if (min > max || max == Long.MAX_VALUE) {
+                throw new IllegalArgumentException("__random: invalid range " + min + ".." + max);
+            }
+            return (out, record) -> writeDecimal(out, ThreadLocalRandom.current().nextLong(min, max + 1));
+        }
+    },
+
+    /**
+     * ${__randomString(length)}: random alphanumeric string.
+     */
+    RANDOMSTRING(1, 1) {
+        @Override
+        FeederTemplate.Segment compile(final long[] args) {
+            final int length = (int) args[0];
+            if (length < 1 || length > MAX_STRING_LENGTH) {
+                throw new IllegalArgumentException("__randomString: length must be between 1 and " + MAX_STRING_LENGTH);
+            }
+            return (out, record) -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                out.ensureWritable(length);
+                int index = out.writerIndex();
+                for (int count = 0; count < length; count++) {
+                    out.setByte(index++, ALPHANUMERIC[random.nextInt(ALPHANUMERIC.length)]);
+                }
+                out.writerIndex(index);
+            };
+        }
+    },
+
+    /**
+     * ${__UUID()}: random (version 4) UUID. ThreadLocalRandom based, so not suitable for security tokens.
+     */
+    UUID(0, 0) {
+        @Override
+        FeederTemplate.Segment compile(final long[] args) {
+            return (out, record) -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+                final long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+                writeHex(out, msb >>> 32, 8);
+                out.writeByte('-');
+                writeHex(out, msb >>> 16, 4);
+                out.writeByte('-');
+                writeHex(out, msb, 4);
+                out.writeByte('-');
+                writeHex(out, lsb >>> 48, 4);
+                out.writeByte('-');
+                writeHex(out, lsb, 12);
+            };
+        }
+    },
+
+    /**
+     * ${__time()}: current time in milliseconds since the epoch.
+     */
+    TIME(0, 0) {
+        @Override
+        FeederTemplate.Segment compile(final long[] args) {
+            return (out, record) -> writeDecimal(out, System.currentTimeMillis());
+        }
+    },
+
+    /**
+     * ${__nocache()}: value never repeated (random prefix of the test plus a counter), to defeat caches.
+     * Usage: /path?nocache=${__nocache()}
+     */
+    NOCACHE(0, 0) {
+        @Override
+        FeederTemplate.Segment compile(final long[] args) {
+            final long prefix = ThreadLocalRandom.current().nextLong();
+            final BlockCounter counter = new BlockCounter(0L);
+            return (out, record) -> {
+                writeHex(out, prefix, 8);
+                writeHex(out, counter.next(), 8);
+            };
+        }
+    };
+
+    static final String PREFIX = "__";
+
+    private static final int MAX_STRING_LENGTH = 65536;
+    private static final byte[] ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes();
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int index = 1; index < POWERS_OF_TEN.length; index++) {
+            POWERS_OF_TEN[index] = POWERS_OF_TEN[index - 1] * 10L;
+        }
+    }
+
+    private final int minArgs;
+    private final int maxArgs;
+
+    ValueGenerator(int minArgs, int maxArgs) {
+        this.minArgs = minArgs;
+        this.maxArgs = maxArgs;
+    }
+
+    abstract FeederTemplate.Segment compile(long[] args);
+
+    static boolean isGenerator(final String expression) {
+        return expression.startsWith(PREFIX);
+    }
+
+    /**
+     * Compiles an expression like __name(arg1,arg2) (the parentheses are optional without args).
+     */
+    static FeederTemplate.Segment compile(final String expression) throws IllegalArgumentException {
+        final int open = expression.indexOf('(');
+        final String name = (open < 0 ? expression : expression.substring(0, open)).substring(PREFIX.length()).trim();
+        final ValueGenerator generator;
+        try {
+            generator = valueOf(name.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown generator " + expression + " (valid: " + Arrays.toString(values()).toLowerCase() + ")");
+        }
+        long[] args = new long[0];
+        if (open >= 0) {
+            final int close = expression.lastIndexOf(')');
+            if (close < open) {
+                throw new IllegalArgumentException("generator " + expression + ": missing ')'");
+            }
+            final String argsStr = expression.substring(open + 1, close).trim();
+            if (!argsStr.isEmpty()) {
+                try {
+                    args = Arrays.stream(argsStr.split(",")).mapToLong(arg -> Long.parseLong(arg.trim())).toArray();
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("generator " + expression + ": arguments must be integers");
+                }
+            }
+        }
+        if (args.length < generator.minArgs || args.length > generator.maxArgs) {
+            throw new IllegalArgumentException("generator " + expression + ": expected " + generator.minArgs
+                + (generator.maxArgs != generator.minArgs ? " to " + generator.maxArgs : "") + " argument(s)");
+        }
+        return generator.compile(args);
+    }
+
+    static void writeDecimal(final ByteBuf out, long value) {
+        if (value == Long.MIN_VALUE) {
+            out.writeBytes(Long.toString(value).getBytes());
+            return;
+        }
+        if (value < 0) {
+            out.writeByte('-');
+            value = -value;
+        }
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        out.ensureWritable(digits);
+        final int start = out.writerIndex();
+        for (int index = start + digits - 1; index >= start; index--) {
+            out.setByte(index, '0' + (int) (value % 10));
+            value /= 10;
+        }
+        out.writerIndex(start + digits);
+    }
+
+    static void writeHex(final ByteBuf out, long value, int digits) {
+        out.ensureWritable(digits);
+        final int start = out.writerIndex();
+        for (int index = start + digits - 1; index >= start; index--) {
+            out.setByte(index, HEX[(int) (value & 0xF)]);
+            value >>>= 4;
+        }
+        out.writerIndex(start + digits);
+    }
+
+    /**
+     * Unique numbers without contention: every thread takes blocks of numbers from the shared counter.
+     */
+    private static final class BlockCounter {
+
+        private static final long BLOCK_SIZE = 1024L;
+
+        private final AtomicLong nextBlock;
+        private final FastThreadLocal<long[]> blocks = new FastThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[] { 0L, 0L };
+            }
+        };
+
+        private BlockCounter(long start) {
+            this.nextBlock = new AtomicLong(start);
+        }
+
+        private long next() {
+            final long[] block = blocks.get();
+            if (block[0] == block[1]) {
+                block[0] = nextBlock.getAndAdd(BLOCK_SIZE);
+                block[1] = block[0] + BLOCK_SIZE;
+            }
+            return block[0]++;
+        }
+    }
+}
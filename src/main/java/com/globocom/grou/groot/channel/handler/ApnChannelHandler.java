@@ -46,7 +46,7 @@ public class ApnChannelHandler extends ApplicationProtocolNegotiationHandler {
             ChannelPipeline p = ctx.pipeline();
             p.addLast(connectionHandler);
             p.addLast(new CookieStorageHandler());
-            p.addLast(new RequestStartStamperHandler(http2ClientHandler));
+            p.addLast(new RequestStartStamperHandler(http2ClientHandler, monitorService));
             p.addLast(http2ClientHandler);
             p.addLast(new ExceptionChannelInboundHandler(monitorService));
             return;
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.cookie.ClientCookieDecoder;
+import io.netty.handler.codec.http.cookie.ClientCookieEncoder;
+import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.util.AttributeKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cookies of one virtual user, shared by its connections (that may live in different event loops).
+ */
+public class CookieJar {
+
+    public static final AttributeKey<CookieJar> COOKIE_JAR_ATTR = AttributeKey.newInstance("cookieJar");
+
+    /**
+     * Cookies by name, domain and path: the same name may be set for different domains or paths.
+     */
+    private final Map<String, Cookie> cookies = new ConcurrentHashMap<>();
+
+    public void store(final HttpResponse response) {
+        for (String setCookie : response.headers().getAll(HttpHeaderNames.SET_COOKIE)) {
+            final Cookie cookie = ClientCookieDecoder.LAX.decode(setCookie);
+            if (cookie != null) {
+                if (cookie.maxAge() == 0) {
+                    cookies.remove(key(cookie));
+                } else {
+                    cookies.put(key(cookie), cookie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Cookie header value, or null if the jar is empty.
+     */
+    public String encode() {
+        return cookies.isEmpty() ? null : ClientCookieEncoder.LAX.encode(cookies.values());
+    }
+
+    private static String key(final Cookie cookie) {
+        final String domain = cookie.domain() == null ? "" : cookie.domain().toLowerCase();
+        return cookie.name() + ';' + domain + ';' + (cookie.path() == null ? "" : cookie.path());
+    }
+}
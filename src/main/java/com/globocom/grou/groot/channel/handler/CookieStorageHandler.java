@@ -48,14 +48,21 @@ public class CookieStorageHandler extends ChannelDuplexHandler {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        final Attribute<Boolean> cookieStorageEnabledAttr = ctx.channel().attr(COOKIE_STORAGE_ENABLED_ATTR);
-        if (cookieStorageEnabledAttr != null && cookieStorageEnabledAttr.get()) {
+        final CookieJar cookieJar = ctx.channel().attr(CookieJar.COOKIE_JAR_ATTR).get();
+        if (cookieJar != null) {
             if (msg instanceof HttpResponse) {
-                synchronized (lock) {
-                    final HttpResponse response = (HttpResponse) msg;
-                    COOKIES.addAll(response.headers()
-                        .getAll(HttpHeaderNames.SET_COOKIE).stream()
-                        .map(ClientCookieDecoder.LAX::decode).collect(Collectors.toCollection(HashSet::new)));
+                cookieJar.store((HttpResponse) msg);
+            }
+        } else {
+            final Attribute<Boolean> cookieStorageEnabledAttr = ctx.channel().attr(COOKIE_STORAGE_ENABLED_ATTR);
+            if (cookieStorageEnabledAttr != null && cookieStorageEnabledAttr.get()) {
+                if (msg instanceof HttpResponse) {
+                    synchronized (lock) {
+                        final HttpResponse response = (HttpResponse) msg;
+                        COOKIES.addAll(response.headers()
+                            .getAll(HttpHeaderNames.SET_COOKIE).stream()
+                            .map(ClientCookieDecoder.LAX::decode).collect(Collectors.toCollection(HashSet::new)));
+                    }
                 }
             }
         }
@@ -64,6 +71,20 @@ public class CookieStorageHandler extends ChannelDuplexHandler {
 
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        final CookieJar cookieJar = ctx.channel().attr(CookieJar.COOKIE_JAR_ATTR).get();
+        if (cookieJar != null) {
+            final String cookies = cookieJar.encode();
+            if (cookies != null) {
+                if (msg instanceof HttpRequest) {
+                    ((HttpRequest) msg).headers().add(HttpHeaderNames.COOKIE, cookies);
+                } else if (msg instanceof EncodedHttpRequest) {
+                    super.write(ctx, ((EncodedHttpRequest) msg).addHeader(ctx.alloc(), HttpHeaderNames.COOKIE, cookies), promise);
+                    return;
+                }
+            }
+            super.write(ctx, msg, promise);
+            return;
+        }
         final Attribute<Boolean> cookieStorageEnabledAttr = ctx.channel().attr(COOKIE_STORAGE_ENABLED_ATTR);
         if (cookieStorageEnabledAttr != null && cookieStorageEnabledAttr.get()) {
             if (msg instanceof HttpRequest && !COOKIES.isEmpty()) {
@@ -73,6 +94,13 @@ public class CookieStorageHandler extends ChannelDuplexHandler {
                     cookies.add(ClientCookieEncoder.LAX.encode(COOKIES));
                     cookies.forEach(cookie -> request.headers().add(HttpHeaderNames.COOKIE, cookie));
                 }
+            } else if (msg instanceof EncodedHttpRequest && !COOKIES.isEmpty()) {
+                final String cookies;
+                synchronized (lock) {
+                    cookies = ClientCookieEncoder.LAX.encode(COOKIES);
+                }
+                super.write(ctx, ((EncodedHttpRequest) msg).addHeader(ctx.alloc(), HttpHeaderNames.COOKIE, cookies), promise);
+                return;
             }
         }
         super.write(ctx, msg, promise);
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.stream.ChunkedInput;
+import java.io.File;
+import java.util.function.Supplier;
+
+/**
+ * HTTP/1.1 request already encoded (request line, headers and body). It's written as is by the
+ * {@link Http1ClientCodec}, so a template may be encoded once and sent many times as a duplicate.
+ * The body may also be a file, sent after the encoded part as a FileRegion (cleartext only), or a
+ * {@link ChunkedInput}, sent in pieces by the ChunkedWriteHandler as the channel becomes writable.
+ */
+public class EncodedHttpRequest extends DefaultByteBufHolder {
+
+    private static final int CRLF_SHORT = ('\r' << 8) | '\n';
+    private static final int HEADER_SEPARATOR_SHORT = (':' << 8) | ' ';
+
+    private final HttpMethod method;
+    private final int headersEnd;
+    private final File bodyFile;
+    private final long bodyFileLength;
+    private final Supplier<ChunkedInput<ByteBuf>> bodyInput;
+
+    /**
+     * @param headersEnd offset (from the reader index) just after the CRLF of the last header
+     */
+    public EncodedHttpRequest(HttpMethod method, ByteBuf content, int headersEnd) {
+        this(method, content, headersEnd, null, 0L, null);
+    }
+
+    private EncodedHttpRequest(HttpMethod method, ByteBuf content, int headersEnd, File bodyFile, long bodyFileLength,
+                               Supplier<ChunkedInput<ByteBuf>> bodyInput) {
+        super(content);
+        this.method = method;
+        this.headersEnd = headersEnd;
+        this.bodyFile = bodyFile;
+        this.bodyFileLength = bodyFileLength;
+        this.bodyInput = bodyInput;
+    }
+
+    public HttpMethod method() {
+        return method;
+    }
+
+    /**
+     * Appends the body after the headers, without copying it. This message is released.
+     */
+    public EncodedHttpRequest withBody(ByteBufAllocator alloc, ByteBuf body) {
+        final ByteBuf composite = alloc.compositeDirectBuffer(2).addComponents(true, content().retain(), body);
+        release();
+        return new EncodedHttpRequest(method, composite, headersEnd);
+    }
+
+    /**
+     * Sends the file as the body (the content must end with the headers). The socket transfers it directly
+     * from the file, so it can't be used with TLS.
+     */
+    public EncodedHttpRequest withBodyFile(File file, long length) {
+        return new EncodedHttpRequest(method, content(), headersEnd, file, length, null);
+    }
+
+    /**
+     * Sends the body read from a new input per request (the content must end with the headers), so a large body is
+     * written as the channel drains it, without filling the outbound buffer.
+     */
+    public EncodedHttpRequest withBodyInput(Supplier<ChunkedInput<ByteBuf>> bodyInput) {
+        return new EncodedHttpRequest(method, content(), headersEnd, null, 0L, bodyInput);
+    }
+
+    /**
+     * The body to write after the content: a new region of the body file or a new body input, or null if the body
+     * is in the content.
+     */
+    public Object newBody() {
+        if (bodyFile != null) {
+            return new DefaultFileRegion(bodyFile, 0L, bodyFileLength);
+        }
+        return bodyInput != null ? bodyInput.get() : null;
+    }
+
+    /**
+     * Splices one header after the static ones, without copying them. This message is released.
+     */
+    public EncodedHttpRequest addHeader(ByteBufAllocator alloc, CharSequence name, CharSequence value) {
+        final ByteBuf header = alloc.directBuffer(name.length() + value.length() + 4);
+        ByteBufUtil.writeAscii(header, name);
+        header.writeShort(HEADER_SEPARATOR_SHORT);
+        ByteBufUtil.writeAscii(header, value);
+        header.writeShort(CRLF_SHORT);
+        final ByteBuf content = content();
+        final int readerIndex = content.readerIndex();
+        final ByteBuf composite = alloc.compositeDirectBuffer(3).addComponents(true,
+            content.retainedSlice(readerIndex, headersEnd),
+            header,
+            content.retainedSlice(readerIndex + headersEnd, content.readableBytes() - headersEnd));
+        final int newHeadersEnd = headersEnd + header.readableBytes();
+        release();
+        return new EncodedHttpRequest(method, composite, newHeadersEnd, bodyFile, bodyFileLength, bodyInput);
+    }
+
+    @Override
+    public EncodedHttpRequest replace(ByteBuf content) {
+        return new EncodedHttpRequest(method, content, headersEnd, bodyFile, bodyFileLength, bodyInput);
+    }
+
+    @Override
+    public EncodedHttpRequest retainedDuplicate() {
+        return replace(content().retainedDuplicate());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.CombinedChannelDuplexHandler;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Like HttpClientCodec, but {@link EncodedHttpRequest}s bypass the encoder. The methods of all requests
+ * written are queued to decode the responses correctly (e.g. responses to HEAD never have content).
+ */
+public class Http1ClientCodec extends CombinedChannelDuplexHandler<HttpResponseDecoder, HttpRequestEncoder> {
+
+    private final Queue<HttpMethod> methods = new ArrayDeque<>();
+
+    public Http1ClientCodec() {
+        init(new Decoder(), new Encoder());
+    }
+
+    private final class Encoder extends HttpRequestEncoder {
+
+        @Override
+        public boolean acceptOutboundMessage(Object msg) throws Exception {
+            return msg instanceof EncodedHttpRequest || super.acceptOutboundMessage(msg);
+        }
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+            if (msg instanceof EncodedHttpRequest) {
+                final EncodedHttpRequest request = (EncodedHttpRequest) msg;
+                methods.offer(request.method());
+                out.add(request.content().retain());
+                final Object body = request.newBody();
+                if (body != null) {
+                    out.add(body);
+                }
+                return;
+            }
+            if (msg instanceof HttpRequest) {
+                methods.offer(((HttpRequest) msg).method());
+            }
+            super.encode(ctx, msg, out);
+        }
+    }
+
+    private final class Decoder extends HttpResponseDecoder {
+
+        @Override
+        protected boolean isContentAlwaysEmpty(HttpMessage msg) {
+            final int statusCode = ((HttpResponse) msg).status().code();
+            if (statusCode == 100 || statusCode == 101) {
+                return super.isContentAlwaysEmpty(msg);
+            }
+            final HttpMethod method = methods.poll();
+            if (HttpMethod.HEAD.equals(method) || (HttpMethod.CONNECT.equals(method) && statusCode == 200)) {
+                return true;
+            }
+            return super.isContentAlwaysEmpty(msg);
+        }
+    }
+}
@@ -21,9 +21,9 @@ import com.globocom.grou.groot.monit.MonitorService;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.Attribute;
 import java.util.concurrent.TimeUnit;
@@ -51,13 +51,16 @@ public class Http1ClientInitializer extends ChannelInitializer<SocketChannel> {
             Integer idleTimeout = idleTimeoutAttr.get();
             pipeline.addLast(new IdleStateHandler(idleTimeout, idleTimeout, 0, TimeUnit.SECONDS));
         }
+        pipeline.addLast(new PhaseTimingHandler(monitorService));
         pipeline.addLast(new TrafficHandler(monitorService));
         if (sslContext != null) {
-            pipeline.addLast(sslContext.newHandler(channel.alloc()));
+            pipeline.addLast(RedirectFollower.newSslHandler(sslContext, channel));
         }
-        pipeline.addLast(new HttpClientCodec());
+        // below the codec: the body inputs are written already encoded
+        pipeline.addLast(new ChunkedWriteHandler());
+        pipeline.addLast(new Http1ClientCodec());
         pipeline.addLast(new HttpContentDecompressor());
-        pipeline.addLast(new RequestStartStamperHandler(http1ResponseHandler));
+        pipeline.addLast(new RequestStartStamperHandler(http1ResponseHandler, monitorService));
         pipeline.addLast(new CookieStorageHandler());
         pipeline.addLast(http1ResponseHandler);
         pipeline.addLast(new ExceptionChannelInboundHandler(monitorService));
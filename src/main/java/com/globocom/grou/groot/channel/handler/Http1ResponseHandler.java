@@ -16,40 +16,141 @@
 
 package com.globocom.grou.groot.channel.handler;
 
+import com.globocom.grou.groot.channel.ChannelManager;
 import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpResponse;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
 
 class Http1ResponseHandler extends SimpleChannelInboundHandler<HttpObject> implements RequestQueueStamper {
 
-    private final ConcurrentLinkedQueue<Long> requestQueueTimes = new ConcurrentLinkedQueue<>();
+    private static final String UNSOLICITED_RESPONSE = "unsolicited_response";
+    private static final String CONNECTION_CLOSED = "connection_closed_without_response";
+
+    private final InFlightRequests inFlightRequests = new InFlightRequests();
 
     private final MonitorService monitorService;
 
+    private RedirectFollower redirectFollower = null;
+    private boolean interim = false;
+    private boolean redirecting = false;
+    private Channel notifyChannel = null;
+    private PhaseTimingHandler phaseTiming = null;
+    private long firstByte = 0L;
+
     public Http1ResponseHandler(MonitorService monitorService) {
         this.monitorService = monitorService;
     }
 
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().attr(InFlightRequests.IN_FLIGHT_ATTR).set(inFlightRequests);
+        redirectFollower = ctx.channel().attr(RedirectFollower.REDIRECT_FOLLOWER_ATTR).get();
+        phaseTiming = ctx.pipeline().get(PhaseTimingHandler.class);
+        super.handlerAdded(ctx);
+        notifyReady(ctx.channel());
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        requestQueueTimes.clear();
+        final boolean testEnd = Boolean.TRUE.equals(ctx.channel().attr(ChannelManager.TEST_END_ATTR).get());
+        RequestStamp requestStamp;
+        while ((requestStamp = inFlightRequests.poll()) != null) {
+            // the requests still in flight (e.g. a dropped pipeline) are lost, unless the test is over
+            if (!testEnd) {
+                if (!requestStamp.isWarmup()) {
+                    monitorService.failedIncr(CONNECTION_CLOSED);
+                }
+                sendFailTime(requestStamp, monitorService);
+            }
+            // redirects from other connections
+            RedirectFollower.notifyOrigin(requestStamp);
+        }
         super.channelInactive(ctx);
     }
 
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        final RequestStamp requestStamp = inFlightRequests.peek();
+        sendFailTime(inFlightRequests, monitorService);
+        if (requestStamp != null) {
+            RedirectFollower.notifyOrigin(requestStamp);
+        }
+        super.exceptionCaught(ctx, cause);
+    }
+
     @Override
     public void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception {
         if (msg instanceof HttpResponse) {
-            HttpResponse response = (HttpResponse) msg;
-            sendMetrics(response.status().code(), requestQueueTimes, monitorService);
+            final int statusCode = ((HttpResponse) msg).status().code();
+            interim = isInterim(statusCode);
+            if (interim) {
+                return;
+            }
+            final RequestStamp requestStamp = inFlightRequests.peek();
+            if (requestStamp == null) {
+                // a response with no request in flight: the connection can't be matched with its requests anymore
+                monitorService.failedIncr(UNSOLICITED_RESPONSE);
+                ctx.close();
+                return;
+            }
+            // the response head arrived with the last read (a head split between reads is stamped by the last one)
+            firstByte = phaseTiming != null && !requestStamp.isWarmup() ? phaseTiming.lastRead() : 0L;
+            if (firstByte != 0L) {
+                monitorService.sendFirstByteTime(requestStamp.getStart(), firstByte);
+            }
+            if (!requestStamp.isWarmup()) {
+                monitorService.sendPipelineResponseTime(requestStamp.getDepth(), requestStamp.getStart());
+            }
+            final RedirectFollower.Target redirectTarget = redirectFollower != null && RedirectFollower.isRedirect(statusCode) ?
+                redirectFollower.resolve(ctx.channel(), requestStamp, ((HttpResponse) msg).headers().get(HttpHeaderNames.LOCATION)) : null;
+            if (requestStamp.getRedirects() > 0 || redirectTarget != null) {
+                if (!requestStamp.isWarmup()) {
+                    monitorService.sendRedirectHopTime(requestStamp.getStart());
+                }
+            }
+            if (redirectTarget != null) {
+                // the response of the chain is the response of the redirect
+                inFlightRequests.poll();
+                redirectFollower.follow(ctx.channel(), requestStamp, redirectTarget);
+                redirecting = true;
+                return;
+            }
+            if (requestStamp.getRedirects() > 0 && !requestStamp.isWarmup()) {
+                monitorService.sendRedirectChainTime(requestStamp.getChainStart());
+            }
+            notifyChannel = requestStamp.getOrigin() != null ? requestStamp.getOrigin() : ctx.channel();
+            sendMetrics(statusCode, inFlightRequests, monitorService);
         }
+        if (msg instanceof LastHttpContent && !interim) {
+            if (firstByte != 0L) {
+                monitorService.sendDownloadTime(firstByte, phaseTiming.lastRead());
+                firstByte = 0L;
+            }
+            if (redirecting) {
+                redirecting = false;
+            } else {
+                notifyResponse(notifyChannel != null ? notifyChannel : ctx.channel());
+            }
+        }
+    }
+
+    /**
+     * Informational responses (except 101 Switching Protocols) precede the final response of the same request.
+     */
+    private boolean isInterim(int statusCode) {
+        return statusCode >= HttpResponseStatus.CONTINUE.code() && statusCode < HttpResponseStatus.OK.code()
+            && statusCode != HttpResponseStatus.SWITCHING_PROTOCOLS.code();
     }
 
     @Override
-    public void offer(long timestamp) {
-        requestQueueTimes.offer(timestamp);
+    public void offer(RequestStamp requestStamp) {
+        inFlightRequests.offer(requestStamp);
     }
 
 }
@@ -74,7 +74,7 @@ public class Http2ClientInitializer extends ChannelInitializer<SocketChannel> {
                                 .build()))
                 .connection(connection)
                 .build();
-        http2ClientHandler = new Http2ResponseHandler(monitorService);
+        http2ClientHandler = new Http2ResponseHandler(connection, monitorService);
         if (sslCtx != null) {
             configureSsl(ch);
         } else {
@@ -92,8 +92,9 @@ public class Http2ClientInitializer extends ChannelInitializer<SocketChannel> {
             Integer idleTimeout = idleTimeoutAttr.get();
             pipeline.addLast(new IdleStateHandler(idleTimeout, idleTimeout, 0, TimeUnit.SECONDS));
         }
+        pipeline.addLast(new PhaseTimingHandler(monitorService));
         pipeline.addLast(new TrafficHandler(monitorService));
-        pipeline.addLast(sslCtx.newHandler(ch.alloc()));
+        pipeline.addLast(RedirectFollower.newSslHandler(sslCtx, ch));
         // We must wait for the handshake to finish and the protocol to be negotiated before configuring
         // the HTTP/2 components of the pipeline.
         pipeline.addLast(new ApnChannelHandler(monitorService, connectionHandler, http2ClientHandler));
@@ -109,6 +110,7 @@ public class Http2ClientInitializer extends ChannelInitializer<SocketChannel> {
         HttpClientUpgradeHandler upgradeHandler = new HttpClientUpgradeHandler(sourceCodec, upgradeCodec, 65536);
 
         ch.pipeline().addLast(
+                new PhaseTimingHandler(monitorService),
                 new TrafficHandler(monitorService),
                 sourceCodec,
                 upgradeHandler,
@@ -130,7 +132,7 @@ public class Http2ClientInitializer extends ChannelInitializer<SocketChannel> {
             // Done with this handler, remove it from the pipeline.
             final ChannelPipeline pipeline = ctx.pipeline();
             pipeline.remove(this);
-            pipeline.addLast(new RequestStartStamperHandler(http2ClientHandler));
+            pipeline.addLast(new RequestStartStamperHandler(http2ClientHandler, monitorService));
             pipeline.addLast(new CookieStorageHandler());
             pipeline.addLast(http2ClientHandler);
             pipeline.addLast(new ExceptionChannelInboundHandler(monitorService));
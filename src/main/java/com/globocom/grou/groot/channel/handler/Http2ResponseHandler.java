@@ -16,35 +16,138 @@
 
 package com.globocom.grou.groot.channel.handler;
 
+import com.globocom.grou.groot.channel.ChannelManager;
 import com.globocom.grou.groot.monit.MonitorService;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2ConnectionAdapter;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2Stream;
 import io.netty.handler.codec.http2.HttpConversionUtil;
 import io.netty.util.CharsetUtil;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.util.ArrayDeque;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+/**
+ * Responses of the HTTP/2 streams. Streams complete in any order, so the requests stamps are kept by stream id:
+ * a stamp is bound to its stream when the stream is created, which happens while the request is written. The
+ * schedulers are notified once a stream is removed, when it no longer counts in the peer streams limit.
+ */
 public class Http2ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> implements RequestQueueStamper {
 
     private static final Log LOGGER = LogFactory.getLog(Http2ResponseHandler.class);
 
+    private static final String STREAM_CLOSED = "stream_closed_without_response";
+    private static final String STREAM_NOT_CREATED = "stream_not_created";
+
     private final MonitorService monitorService;
-    private final ConcurrentLinkedQueue<Long> requestQueueTimes = new ConcurrentLinkedQueue<>();
+    private final InFlightRequests inFlightRequests = new InFlightRequests();
+
+    // requests offered whose stream is not created yet, in write order
+    private final ArrayDeque<RequestStamp> unbound = new ArrayDeque<>();
+    private final IntObjectMap<RequestStamp> streams = new IntObjectHashMap<>();
+
+    private Channel channel = null;
 
-    public Http2ResponseHandler(MonitorService monitorService) {
+    public Http2ResponseHandler(Http2Connection connection, MonitorService monitorService) {
         this.monitorService = monitorService;
+        connection.addListener(new Http2ConnectionAdapter() {
+            @Override
+            public void onStreamAdded(Http2Stream stream) {
+                if (connection.local().isValidStreamId(stream.id())) {
+                    final RequestStamp requestStamp = unbound.poll();
+                    if (requestStamp != null) {
+                        streams.put(stream.id(), requestStamp);
+                    }
+                }
+            }
+
+            @Override
+            public void onStreamRemoved(Http2Stream stream) {
+                if (!connection.local().isValidStreamId(stream.id())) {
+                    return;
+                }
+                // answered and reset streams are already removed: the stream was closed without response (not a
+                // failure if the test is over)
+                final RequestStamp requestStamp = streams.remove(stream.id());
+                if (requestStamp != null && !(channel != null && Boolean.TRUE.equals(channel.attr(ChannelManager.TEST_END_ATTR).get()))) {
+                    fail(requestStamp, STREAM_CLOSED);
+                }
+                // the stream no longer counts in the peer streams limit: another request may be written
+                if (channel != null && channel.isActive()) {
+                    notifyResponse(channel);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        channel = ctx.channel();
+        ctx.channel().attr(InFlightRequests.IN_FLIGHT_ATTR).set(inFlightRequests);
+        super.handlerAdded(ctx);
+        notifyReady(ctx.channel());
     }
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        requestQueueTimes.clear();
+        // the streams closed with the connection are accounted when removed, the requests without stream here
+        RequestStamp requestStamp;
+        while ((requestStamp = unbound.poll()) != null) {
+            fail(requestStamp, STREAM_CLOSED);
+        }
+        streams.values().forEach(stamp -> fail(stamp, STREAM_CLOSED));
+        streams.clear();
+        inFlightRequests.clear();
         super.channelInactive(ctx);
     }
 
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (cause instanceof Http2Exception.StreamException) {
+            // only the stream was reset (e.g. REFUSED_STREAM): the connection remains usable
+            final Http2Exception.StreamException streamException = (Http2Exception.StreamException) cause;
+            final RequestStamp requestStamp = streams.remove(streamException.streamId());
+            if (requestStamp != null) {
+                fail(requestStamp, "stream_" + streamException.error().name().toLowerCase());
+            }
+            return;
+        }
+        // connection error: the connection is closed, and its streams with it
+        super.exceptionCaught(ctx, cause);
+    }
+
+    private void fail(RequestStamp requestStamp, String reason) {
+        inFlightRequests.remove(requestStamp);
+        if (!requestStamp.isWarmup()) {
+            monitorService.failedIncr(reason);
+        }
+        sendFailTime(requestStamp, monitorService);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Http2Settings) {
+            final Long maxConcurrentStreams = ((Http2Settings) msg).maxConcurrentStreams();
+            if (maxConcurrentStreams != null) {
+                inFlightRequests.setPeerLimit(maxConcurrentStreams);
+                notifyReady(ctx.channel());
+            }
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) throws Exception {
         HttpHeaders headers = msg.headers();
@@ -53,7 +156,9 @@ public class Http2ResponseHandler extends SimpleChannelInboundHandler<FullHttpRe
             LOGGER.error("HttpResponseHandler unexpected message received: " + msg);
             return;
         }
-        sendMetrics(msg.status().code(), requestQueueTimes, monitorService);
+        final RequestStamp requestStamp = streams.remove(streamId.intValue());
+        inFlightRequests.remove(requestStamp);
+        sendMetrics(msg.status().code(), requestStamp, inFlightRequests, monitorService);
 
         final ByteBuf content = msg.content();
         if (content.isReadable()) {
@@ -68,7 +173,22 @@ public class Http2ResponseHandler extends SimpleChannelInboundHandler<FullHttpRe
     }
 
     @Override
-    public void offer(long startRequest) {
-        requestQueueTimes.offer(startRequest);
+    public void offer(RequestStamp requestStamp) {
+        inFlightRequests.offer(requestStamp);
+        unbound.offer(requestStamp);
+    }
+
+    @Override
+    public void offer(RequestStamp requestStamp, ChannelPromise promise) {
+        offer(requestStamp);
+        if (!promise.isVoid()) {
+            promise.addListener(future -> {
+                // a write failed before creating its stream (e.g. refused by the streams limit): its stamp must not
+                // be bound to the next stream
+                if (!future.isSuccess() && unbound.remove(requestStamp)) {
+                    fail(requestStamp, STREAM_NOT_CREATED);
+                }
+            });
+        }
     }
 }
\ No newline at end of file
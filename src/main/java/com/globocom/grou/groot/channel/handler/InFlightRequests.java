@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import io.netty.util.AttributeKey;
+import java.util.ArrayDeque;
+
+/**
+ * Requests written and still waiting for a response, in write order. Confined to the channel event loop.
+ */
+public class InFlightRequests {
+
+    public static final AttributeKey<InFlightRequests> IN_FLIGHT_ATTR = AttributeKey.newInstance("inFlightRequests");
+
+    private final ArrayDeque<RequestStamp> requestStamps = new ArrayDeque<>();
+
+    private int peerLimit = Integer.MAX_VALUE;
+    private boolean served = false;
+
+    public void offer(RequestStamp requestStamp) {
+        requestStamps.offer(requestStamp);
+    }
+
+    public RequestStamp peek() {
+        return requestStamps.peek();
+    }
+
+    public RequestStamp poll() {
+        return requestStamps.poll();
+    }
+
+    /**
+     * Removes the request answered out of order (HTTP/2 streams).
+     */
+    public void remove(RequestStamp requestStamp) {
+        requestStamps.removeFirstOccurrence(requestStamp);
+    }
+
+    public int size() {
+        return requestStamps.size();
+    }
+
+    /**
+     * Concurrency limit announced by the peer (HTTP/2 SETTINGS_MAX_CONCURRENT_STREAMS).
+     */
+    public void setPeerLimit(long peerLimit) {
+        this.peerLimit = (int) Math.min(peerLimit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Another request fits below the peer limit and below the local limit (zero for unlimited).
+     */
+    public boolean hasCapacity(int limit) {
+        final int size = requestStamps.size();
+        return size < peerLimit && (limit <= 0 || size < limit);
+    }
+
+    /**
+     * The connection did its job: a response arrived (or, in TLS handshake only mode, the handshake is done).
+     */
+    public void markServed() {
+        served = true;
+    }
+
+    public boolean isServed() {
+        return served;
+    }
+
+    public void clear() {
+        requestStamps.clear();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import com.globocom.grou.groot.channel.SslService;
+import com.globocom.grou.groot.channel.TlsProfile;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.ssl.SslHandler;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Times the connection phases: the TCP connect (the name is already resolved when the connect reaches the
+ * pipeline) and the TLS handshake, full or resumed. Also stamps every read from the socket, so the response handlers know when
+ * the first and the last bytes of a response arrived.
+ */
+public class PhaseTimingHandler extends ChannelDuplexHandler {
+
+    private final MonitorService monitorService;
+
+    private long lastRead = 0L;
+
+    public PhaseTimingHandler(MonitorService monitorService) {
+        this.monitorService = monitorService;
+    }
+
+    @Override
+    public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress, SocketAddress localAddress, ChannelPromise promise) throws Exception {
+        final long start = System.nanoTime();
+        promise.addListener(future -> {
+            if (future.isSuccess()) {
+                monitorService.sendTcpConnectTime(start);
+            }
+        });
+        super.connect(ctx, remoteAddress, localAddress, promise);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        final SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+        if (sslHandler != null) {
+            final long connected = System.nanoTime();
+            final boolean sessionResumption = Boolean.TRUE.equals(ctx.channel().attr(SslService.SESSION_RESUMPTION_ATTR).get());
+            final Set<ByteBuffer> sessionIds = ctx.channel().attr(SslService.SESSION_IDS_ATTR).get();
+            final TlsProfile tlsProfile = ctx.channel().attr(SslService.TLS_PROFILE_ATTR).get();
+            final int profile = tlsProfile != null ? tlsProfile.id() : -1;
+            sslHandler.handshakeFuture().addListener(handshake -> {
+                if (handshake.isSuccess()) {
+                    final SSLSession session = sslHandler.engine().getSession();
+                    // a resumed session was established by a previous handshake of the test
+                    final boolean resumed = sessionResumption && sessionIds != null && !sessionIds.add(ByteBuffer.wrap(session.getId()));
+                    monitorService.sendTlsHandshakeTime(connected, resumed, profile);
+                    if (!sessionResumption) {
+                        session.invalidate();
+                    }
+                } else if (handshake.cause() instanceof SSLException) {
+                    monitorService.tlsHandshakeFailIncr(profile);
+                }
+            });
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        lastRead = System.nanoTime();
+        super.channelRead(ctx, msg);
+    }
+
+    /**
+     * When the last read from the socket started (System.nanoTime based).
+     */
+    public long lastRead() {
+        return lastRead;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import com.globocom.grou.groot.channel.SslService;
+import com.globocom.grou.groot.channel.TlsProfile;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.CharsetUtil;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * Follows the redirects of HTTP/1 responses, up to maxRedirects hops, always with GET (as browsers do). Locations
+ * are resolved once and kept, with their encoded request, in an LRU cache. Redirects to another origin are sent
+ * through a small pool of connections per host. Cache and pools are per event loop, so nothing is shared between
+ * threads.
+ */
+public class RedirectFollower {
+
+    public static final AttributeKey<RedirectFollower> REDIRECT_FOLLOWER_ATTR = AttributeKey.newInstance("redirectFollower");
+
+    /**
+     * Origin (scheme://host:port) of the channel, to resolve relative locations (and the TLS SNI).
+     */
+    public static final AttributeKey<URI> ORIGIN_ATTR = AttributeKey.newInstance("origin");
+
+    static final AttributeKey<RequestStamp> REDIRECT_ATTR = AttributeKey.newInstance("redirect");
+
+    private static final int MAX_TARGETS_CACHED = 1024;
+    private static final int MAX_CONNS_PER_HOST = 8;
+    private static final String INVALID_LOCATION = "redirect_invalid_location";
+
+    private final Bootstrap bootstrap;
+    private final SslContext sslContext;
+    private final MonitorService monitorService;
+    private final int maxRedirects;
+
+    private final FastThreadLocal<Map<String, Target>> targets = new FastThreadLocal<Map<String, Target>>() {
+        @Override
+        protected Map<String, Target> initialValue() {
+            return new LinkedHashMap<String, Target>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Target> eldest) {
+                    if (size() > MAX_TARGETS_CACHED) {
+                        eldest.getValue().request.release();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        protected void onRemoval(Map<String, Target> cache) {
+            cache.values().forEach(target -> target.request.release());
+        }
+    };
+
+    private final FastThreadLocal<Map<URI, List<ChannelFuture>>> pools = new FastThreadLocal<Map<URI, List<ChannelFuture>>>() {
+        @Override
+        protected Map<URI, List<ChannelFuture>> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    /**
+     * @param sslContext used by the connections to https origins
+     */
+    public RedirectFollower(Bootstrap bootstrap, SslContext sslContext, MonitorService monitorService, int maxRedirects) {
+        this.bootstrap = bootstrap;
+        this.sslContext = sslContext;
+        this.monitorService = monitorService;
+        this.maxRedirects = maxRedirects;
+    }
+
+    static boolean isRedirect(int statusCode) {
+        return statusCode == HttpResponseStatus.MOVED_PERMANENTLY.code()
+            || statusCode == HttpResponseStatus.FOUND.code()
+            || statusCode == HttpResponseStatus.SEE_OTHER.code()
+            || statusCode == HttpResponseStatus.TEMPORARY_REDIRECT.code()
+            || statusCode == HttpResponseStatus.PERMANENT_REDIRECT.code();
+    }
+
+    /**
+     * Returns the target of the location, or null if the redirect must not be followed (no location, max hops
+     * reached or invalid location).
+     */
+    Target resolve(Channel channel, RequestStamp redirected, String location) {
+        if (location == null || location.isEmpty()) {
+            return null;
+        }
+        if (redirected.getRedirects() >= maxRedirects) {
+            monitorService.redirectsExceededIncr();
+            return null;
+        }
+        final URI origin = channel.attr(ORIGIN_ATTR).get();
+        final String key = origin + " " + location;
+        final Map<String, Target> cache = targets.get();
+        Target target = cache.get(key);
+        if (target == null) {
+            try {
+                target = new Target(origin.resolve(location));
+            } catch (IllegalArgumentException e) {
+                monitorService.failedIncr(INVALID_LOCATION);
+                return null;
+            }
+            cache.put(key, target);
+        }
+        return target;
+    }
+
+    /**
+     * Sends the request of the target: on the same channel if it's the same origin, otherwise on a connection of
+     * the target host pool.
+     */
+    void follow(Channel channel, RequestStamp redirected, Target target) {
+        final RequestStamp redirect = redirected.nextHop(redirected.getOrigin() != null ? redirected.getOrigin() : channel);
+        if (target.origin.equals(channel.attr(ORIGIN_ATTR).get())) {
+            write(channel, redirect, target);
+            return;
+        }
+        final ChannelFuture connection = acquire(channel.eventLoop(), target.origin);
+        connection.addListener(future -> {
+            if (future.isSuccess()) {
+                write(connection.channel(), redirect, target);
+            } else {
+                monitorService.fail(future.cause());
+                if (!redirect.isWarmup()) {
+                    monitorService.sendFailTime(redirect.getChainStart());
+                }
+                notifyOrigin(redirect);
+            }
+        });
+    }
+
+    private void write(Channel channel, RequestStamp redirect, Target target) {
+        channel.attr(REDIRECT_ATTR).set(redirect);
+        channel.writeAndFlush(target.request.retainedDuplicate());
+    }
+
+    /**
+     * The least busy connection to the origin (on this event loop), or a new one if they are all busy.
+     */
+    private ChannelFuture acquire(EventLoop eventLoop, URI origin) {
+        final List<ChannelFuture> pool = pools.get().computeIfAbsent(origin, key -> new ArrayList<>());
+        ChannelFuture leastBusy = null;
+        int leastInFlight = Integer.MAX_VALUE;
+        for (ChannelFuture connection : pool) {
+            final InFlightRequests inFlightRequests = connection.channel().attr(InFlightRequests.IN_FLIGHT_ATTR).get();
+            final int inFlight = connection.isDone() && inFlightRequests != null ? inFlightRequests.size() : MAX_CONNS_PER_HOST;
+            if (inFlight < leastInFlight) {
+                leastBusy = connection;
+                leastInFlight = inFlight;
+            }
+        }
+        if (leastBusy != null && (leastInFlight == 0 || pool.size() >= MAX_CONNS_PER_HOST)) {
+            return leastBusy;
+        }
+        final boolean ssl = "https".equalsIgnoreCase(origin.getScheme());
+        final ChannelFuture connection = bootstrap.clone(eventLoop)
+            .attr(ORIGIN_ATTR, origin)
+            .attr(REDIRECT_FOLLOWER_ATTR, this)
+            .handler(new Http1ClientInitializer(ssl ? sslContext : null, monitorService))
+            .connect(origin.getHost(), origin.getPort());
+        pool.add(connection);
+        connection.channel().closeFuture().addListener(future -> pool.remove(connection));
+        return connection;
+    }
+
+    /**
+     * The redirected request was lost: its origin channel may send another one.
+     */
+    static void notifyOrigin(RequestStamp requestStamp) {
+        final Channel origin = requestStamp.getOrigin();
+        final ResponseListener responseListener = origin != null ? origin.attr(ResponseListener.RESPONSE_LISTENER_ATTR).get() : null;
+        if (responseListener != null) {
+            responseListener.onResponse(origin);
+        }
+    }
+
+    public static URI origin(String scheme, String host, int port) {
+        return URI.create(scheme.toLowerCase() + "://" + host + ":" + port);
+    }
+
+    /**
+     * TLS handler of the channel, with its origin host as SNI (the address connected may be a resolve override)
+     * and its TLS profile, if any. Sessions are cached by peer host and port, so without session resumption the
+     * engine has no peer: the SNI is just set on its parameters (otherwise TLS 1.3 tickets, received after the
+     * handshake, would be resumed).
+     */
+    public static SslHandler newSslHandler(SslContext sslContext, Channel channel) {
+        final URI origin = channel.attr(ORIGIN_ATTR).get();
+        final boolean sessionResumption = Boolean.TRUE.equals(channel.attr(SslService.SESSION_RESUMPTION_ATTR).get());
+        final SslHandler sslHandler;
+        if (origin != null && sessionResumption) {
+            sslHandler = sslContext.newHandler(channel.alloc(), origin.getHost(), origin.getPort());
+        } else {
+            sslHandler = sslContext.newHandler(channel.alloc());
+            if (origin != null) {
+                setServerName(sslHandler.engine(), origin.getHost());
+            }
+        }
+        final TlsProfile tlsProfile = channel.attr(SslService.TLS_PROFILE_ATTR).get();
+        if (tlsProfile != null) {
+            tlsProfile.apply(sslHandler.engine());
+        }
+        return sslHandler;
+    }
+
+    private static void setServerName(SSLEngine engine, String host) {
+        if (host.startsWith("[") || NetUtil.isValidIpV4Address(host)) {
+            return;
+        }
+        try {
+            final SSLParameters parameters = engine.getSSLParameters();
+            parameters.setServerNames(Collections.singletonList(new SNIHostName(host)));
+            engine.setSSLParameters(parameters);
+        } catch (IllegalArgumentException e) {
+            // not a valid SNI host name: no SNI, as with an IP address
+        }
+    }
+
+    /**
+     * Location resolved: its origin and the GET request, encoded once.
+     */
+    static final class Target {
+
+        private final URI origin;
+        private final EncodedHttpRequest request;
+
+        private Target(URI location) throws IllegalArgumentException {
+            final String scheme = location.getScheme();
+            if (scheme == null || !scheme.matches("(?i)https?") || location.getHost() == null) {
+                throw new IllegalArgumentException("unsupported location " + location);
+            }
+            final boolean ssl = "https".equalsIgnoreCase(scheme);
+            final int port = location.getPort() > 0 ? location.getPort() : (ssl ? 443 : 80);
+            this.origin = origin(scheme, location.getHost(), port);
+            final String path = (location.getRawPath() == null || location.getRawPath().isEmpty() ? "/" : location.getRawPath())
+                + (location.getRawQuery() != null ? "?" + location.getRawQuery() : "");
+            final String host = location.getHost() + (location.getPort() > 0 ? ":" + location.getPort() : "");
+            final String head = "GET " + path + " HTTP/1.1\r\nhost: " + host + "\r\n";
+            final ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer(head.length() + 2);
+            ByteBufUtil.writeAscii(content, head);
+            final int headersEnd = content.readableBytes();
+            content.writeBytes("\r\n".getBytes(CharsetUtil.US_ASCII));
+            this.request = new EncodedHttpRequest(HttpMethod.GET, content, headersEnd);
+        }
+    }
+}
@@ -17,26 +17,81 @@
 package com.globocom.grou.groot.channel.handler;
 
 import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 public interface RequestQueueStamper extends ChannelHandler {
 
-    void offer(long startRequest);
+    void offer(RequestStamp requestStamp);
+
+    /**
+     * Stamps a request with the promise of its write (notified once the request is written or failed).
+     */
+    default void offer(RequestStamp requestStamp, ChannelPromise promise) {
+        offer(requestStamp);
+    }
 
     int MAX_RESPONSE_STATUS = 599;
 
     default void sendMetrics(
         int statusCode,
-        final ConcurrentLinkedQueue<Long> requestQueueTimes,
+        final InFlightRequests inFlightRequests,
+        final MonitorService monitorService) {
+
+        if (statusCode >= HttpResponseStatus.CONTINUE.code() && statusCode <= MAX_RESPONSE_STATUS) {
+            sendMetrics(statusCode, inFlightRequests.poll(), inFlightRequests, monitorService);
+        }
+    }
+
+    /**
+     * Metrics of the response to the request stamped (already removed from the requests in flight).
+     */
+    default void sendMetrics(
+        int statusCode,
+        final RequestStamp requestStamp,
+        final InFlightRequests inFlightRequests,
         final MonitorService monitorService) {
 
         if (statusCode >= HttpResponseStatus.CONTINUE.code() && statusCode <= MAX_RESPONSE_STATUS) {
-            final Long tempStartRequest;
-            final long startRequest = (tempStartRequest = requestQueueTimes.poll()) != null ? tempStartRequest : 0L;
+            inFlightRequests.markServed();
+            if (requestStamp != null && requestStamp.isWarmup()) {
+                return;
+            }
+            final long now = System.nanoTime();
+            // a redirect chain is measured as a whole
+            final long startRequest = requestStamp != null ? requestStamp.getChainStart() : now;
+            final long intendedStartRequest = requestStamp != null ? requestStamp.getIntendedStart() : now;
             monitorService.sendStatus(String.valueOf(statusCode), startRequest);
-            monitorService.sendResponseTime(startRequest);
+            monitorService.sendResponseTime(startRequest, intendedStartRequest);
+        }
+    }
+
+    default void notifyReady(final Channel channel) {
+        final ResponseListener responseListener = channel.attr(ResponseListener.RESPONSE_LISTENER_ATTR).get();
+        if (responseListener != null) {
+            responseListener.onReady(channel);
+        }
+    }
+
+    default void notifyResponse(final Channel channel) {
+        final ResponseListener responseListener = channel.attr(ResponseListener.RESPONSE_LISTENER_ATTR).get();
+        if (responseListener != null) {
+            responseListener.onResponse(channel);
+        }
+    }
+
+    default void sendFailTime(
+        final InFlightRequests inFlightRequests,
+        final MonitorService monitorService) {
+
+        sendFailTime(inFlightRequests.poll(), monitorService);
+    }
+
+    default void sendFailTime(final RequestStamp requestStamp, final MonitorService monitorService) {
+        if (requestStamp != null && !requestStamp.isWarmup()) {
+            monitorService.sendFailTime(requestStamp.getStart());
         }
     }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import io.netty.channel.Channel;
+
+/**
+ * Start marks of one request (System.nanoTime based): when the scheduler intended to send it and when it was
+ * really written. Latency measured from the intended start is corrected for coordinated omission.
+ */
+public final class RequestStamp {
+
+    private final long intendedStart;
+    private final long start;
+    private final int depth;
+    private final boolean warmup;
+    private final long chainStart;
+    private final int redirects;
+    private final Channel origin;
+
+    public RequestStamp(long intendedStart, long start, int depth, boolean warmup) {
+        this(intendedStart, start, depth, warmup, start, 0, null);
+    }
+
+    private RequestStamp(long intendedStart, long start, int depth, boolean warmup, long chainStart, int redirects, Channel origin) {
+        this.intendedStart = intendedStart;
+        this.start = start;
+        this.depth = depth;
+        this.warmup = warmup;
+        this.chainStart = chainStart;
+        this.redirects = redirects;
+        this.origin = origin;
+    }
+
+    public long getIntendedStart() {
+        return intendedStart;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Position of the request in the connection pipeline when written (1 means nothing else was in flight).
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Warm up request, ignored by the statistics.
+     */
+    public boolean isWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Stamp of the redirect of this request, before being written: the chain keeps the intended start, the first
+     * start and the origin channel.
+     */
+    public RequestStamp nextHop(Channel origin) {
+        return new RequestStamp(intendedStart, 0L, 0, warmup, chainStart, redirects + 1, origin);
+    }
+
+    /**
+     * Copy of this stamp, written now.
+     */
+    public RequestStamp written(long start, int depth) {
+        return new RequestStamp(intendedStart, start, depth, warmup, chainStart, redirects, origin);
+    }
+
+    /**
+     * Start of the first request of the redirect chain (the start itself if it's not a redirect followed).
+     */
+    public long getChainStart() {
+        return chainStart;
+    }
+
+    /**
+     * Redirects followed before this request.
+     */
+    public int getRedirects() {
+        return redirects;
+    }
+
+    /**
+     * Channel of the first request of the redirect chain, or null if it's this request channel.
+     */
+    public Channel getOrigin() {
+        return origin;
+    }
+}
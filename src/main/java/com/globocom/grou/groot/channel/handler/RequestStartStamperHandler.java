@@ -16,23 +16,46 @@
 
 package com.globocom.grou.groot.channel.handler;
 
+import com.globocom.grou.groot.monit.MonitorService;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.AttributeKey;
 
 public class RequestStartStamperHandler extends ChannelOutboundHandlerAdapter {
 
+    public static final AttributeKey<Long> INTENDED_START_ATTR = AttributeKey.newInstance("intendedStart");
+    public static final AttributeKey<Boolean> WARMUP_ATTR = AttributeKey.newInstance("warmup");
+
     private final Class<? extends RequestQueueStamper> handlerClass;
+    private final MonitorService monitorService;
 
-    public RequestStartStamperHandler(RequestQueueStamper handler) {
+    public RequestStartStamperHandler(RequestQueueStamper handler, MonitorService monitorService) {
         this.handlerClass = handler.getClass();
+        this.monitorService = monitorService;
     }
 
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-        if (msg instanceof HttpRequest) {
-            ctx.pipeline().get(handlerClass).offer(System.currentTimeMillis());
+        if (msg instanceof HttpRequest || msg instanceof EncodedHttpRequest) {
+            final long start = System.nanoTime();
+            final Long intendedStart = ctx.channel().attr(INTENDED_START_ATTR).getAndSet(null);
+            final InFlightRequests inFlightRequests = ctx.channel().attr(InFlightRequests.IN_FLIGHT_ATTR).get();
+            final int depth = inFlightRequests != null ? inFlightRequests.size() + 1 : 1;
+            final boolean warmup = ctx.channel().attr(WARMUP_ATTR).getAndSet(null) != null;
+            final RequestStamp redirect = ctx.channel().attr(RedirectFollower.REDIRECT_ATTR).getAndSet(null);
+            ctx.pipeline().get(handlerClass).offer(redirect != null ?
+                redirect.written(start, depth) :
+                new RequestStamp(intendedStart != null ? intendedStart : start, start, depth, warmup), promise);
+            if (!warmup && !promise.isVoid()) {
+                // write phase: until the whole request (body included) is handed to the socket
+                promise.addListener(future -> {
+                    if (future.isSuccess()) {
+                        monitorService.sendWriteTime(start);
+                    }
+                });
+            }
         }
         super.write(ctx, msg, promise);
     }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.handler;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * Notified by the response handlers, on the channel event loop.
+ */
+public interface ResponseListener {
+
+    AttributeKey<ResponseListener> RESPONSE_LISTENER_ATTR = AttributeKey.newInstance("responseListener");
+
+    /**
+     * The pipeline is ready to write requests (protocol negotiated).
+     */
+    void onReady(Channel channel);
+
+    /**
+     * A response was completely received.
+     */
+    void onResponse(Channel channel);
+
+}
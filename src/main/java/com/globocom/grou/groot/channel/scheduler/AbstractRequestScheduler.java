@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import static com.globocom.grou.groot.channel.ChannelManager.POOL_ATTR;
+import static com.globocom.grou.groot.channel.handler.InFlightRequests.IN_FLIGHT_ATTR;
+import static com.globocom.grou.groot.channel.handler.RequestStartStamperHandler.INTENDED_START_ATTR;
+import static com.globocom.grou.groot.channel.handler.RequestStartStamperHandler.WARMUP_ATTR;
+
+import com.globocom.grou.groot.channel.RequestTemplate;
+import com.globocom.grou.groot.channel.handler.InFlightRequests;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
+import io.netty.util.ReferenceCountUtil;
+import java.util.stream.IntStream;
+
+public abstract class AbstractRequestScheduler implements RequestScheduler {
+
+    protected final RequestTemplate[] requests;
+    protected final MonitorService monitorService;
+
+    private int maxRequestsQueued = 0;
+    private IterationBudget iterationBudget = null;
+    private AliasTable[] requestMix = null;
+    private int[][] poolRequests;
+
+    protected AbstractRequestScheduler(RequestTemplate[] requests, MonitorService monitorService) {
+        this.requests = requests;
+        this.monitorService = monitorService;
+        this.poolRequests = new int[][] { IntStream.range(0, requests.length).toArray() };
+    }
+
+    public AbstractRequestScheduler setMaxRequestsQueued(int maxRequestsQueued) {
+        this.maxRequestsQueued = maxRequestsQueued;
+        return this;
+    }
+
+    public AbstractRequestScheduler setIterationBudget(IterationBudget iterationBudget) {
+        this.iterationBudget = iterationBudget;
+        return this;
+    }
+
+    /**
+     * Request ids of every host pool: a channel only sends the requests of its pool. If undefined, all the requests
+     * share one pool.
+     */
+    public AbstractRequestScheduler setPoolRequests(int[][] poolRequests) {
+        this.poolRequests = poolRequests;
+        return this;
+    }
+
+    /**
+     * Weighted requests mix of every host pool (indexes of the pool requests). If undefined, the requests are sent
+     * in order.
+     */
+    public AbstractRequestScheduler setRequestMix(AliasTable[] requestMix) {
+        this.requestMix = requestMix;
+        return this;
+    }
+
+    protected boolean hasRequestMix() {
+        return requestMix != null;
+    }
+
+    protected int poolOf(Channel channel) {
+        final Integer pool = channel.attr(POOL_ATTR).get();
+        return pool != null && pool < poolRequests.length ? pool : 0;
+    }
+
+    /**
+     * Number of requests of the pool.
+     */
+    protected int poolSize(int pool) {
+        return poolRequests[pool].length;
+    }
+
+    /**
+     * Next request id of the pool: sampled from the weighted mix if defined, otherwise the given (in order, from
+     * zero to the pool size) one.
+     */
+    protected int selectRequest(int pool, int inOrderRequest) {
+        final int[] requestIds = poolRequests[pool];
+        return requestIds[requestMix != null && requestMix[pool] != null ? requestMix[pool].next() : inOrderRequest];
+    }
+
+    /**
+     * Free channel: active, below the write buffer high water mark and below the in flight requests limit.
+     */
+    protected boolean isFree(Channel channel) {
+        return channel.isActive() && channel.isWritable() && hasCapacity(channel, maxRequestsQueued);
+    }
+
+    /**
+     * Below the local in flight requests limit (zero for unlimited) and the peer concurrent streams limit.
+     */
+    protected boolean hasCapacity(Channel channel, int limit) {
+        final InFlightRequests inFlightRequests = channel.attr(IN_FLIGHT_ATTR).get();
+        return inFlightRequests == null || inFlightRequests.hasCapacity(limit);
+    }
+
+    /**
+     * Must be called from the channel event loop: the intended start (System.nanoTime based) is consumed
+     * synchronously by the RequestStartStamperHandler during the write.
+     * Returns false, without writing, if the iterations budget or the data feeder is exhausted.
+     */
+    protected boolean write(Channel channel, int requestId, long intendedStart) {
+        if (iterationBudget != null && iterationBudget.isExhausted()) {
+            return false;
+        }
+        // rendered first, so an exhausted data feeder doesn't take an iteration
+        final Object message = requests[requestId].newMessage();
+        if (message == null) {
+            return false;
+        }
+        long iteration = -1L;
+        if (iterationBudget != null) {
+            iteration = iterationBudget.acquire();
+            if (iteration < 0) {
+                ReferenceCountUtil.release(message);
+                return false;
+            }
+        }
+        if (iteration >= 0 && iterationBudget.isWarmup(iteration)) {
+            channel.attr(WARMUP_ATTR).set(Boolean.TRUE);
+        } else {
+            monitorService.writeCounterIncr(requestId);
+        }
+        channel.attr(INTENDED_START_ATTR).set(intendedStart);
+        channel.writeAndFlush(message);
+        return true;
+    }
+}
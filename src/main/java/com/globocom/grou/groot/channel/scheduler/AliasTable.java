@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted random selection in constant time and without allocation (Vose's alias method). The tables are
+ * immutable, so it's shared by all event loops (each one uses its own ThreadLocalRandom).
+ */
+public class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    public AliasTable(final double[] weights) {
+        final int size = weights.length;
+        double sum = 0.0;
+        for (double weight : weights) {
+            if (weight < 0.0) {
+                throw new IllegalArgumentException("negative weight");
+            }
+            sum += weight;
+        }
+        if (size == 0 || sum <= 0.0) {
+            throw new IllegalArgumentException("weights undefined");
+        }
+        probability = new double[size];
+        alias = new int[size];
+
+        final double[] scaled = new double[size];
+        final ArrayDeque<Integer> small = new ArrayDeque<>();
+        final ArrayDeque<Integer> large = new ArrayDeque<>();
+        for (int index = 0; index < size; index++) {
+            scaled[index] = weights[index] * size / sum;
+            (scaled[index] < 1.0 ? small : large).push(index);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            final int less = small.pop();
+            final int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            (scaled[more] < 1.0 ? small : large).push(more);
+        }
+        // remaining entries are 1.0 (but rounding errors)
+        while (!large.isEmpty()) {
+            probability[large.pop()] = 1.0;
+        }
+        while (!small.isEmpty()) {
+            probability[small.pop()] = 1.0;
+        }
+    }
+
+    public int next() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    public int size() {
+        return probability.length;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import com.globocom.grou.groot.channel.RequestTemplate;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open model: requests are issued at a global target rate (requests per second), independently of the responses.
+ * The rate is split between the event loops in proportion to the channels they own (a loop without channels gives
+ * its share to the others), and every loop dispenses its own tokens to the free channels it owns, so the hot path
+ * only reads the shared channels count and never takes locks.
+ */
+public class ArrivalRateScheduler extends AbstractRequestScheduler {
+
+    private static final double NANOS_PER_SEC = 1_000_000_000.0;
+
+    private final Map<EventExecutor, Dispenser> dispensers = new IdentityHashMap<>();
+    private final AtomicInteger numChannels = new AtomicInteger(0);
+    private final int resourceRate;
+    private final ArrivalDistribution distribution;
+    private final Ramp ramp;
+    private final int tickMicros;
+    private final long tickNanos;
+
+    public ArrivalRateScheduler(
+        final EventLoopGroup group,
+        final RequestTemplate[] requests,
+        final MonitorService monitorService,
+        int resourceRate,
+        int tickMicros,
+        final ArrivalDistribution distribution,
+        final Ramp ramp) {
+
+        super(requests, monitorService);
+        this.resourceRate = resourceRate;
+        this.distribution = distribution;
+        this.ramp = ramp;
+        this.tickMicros = tickMicros;
+        this.tickNanos = TimeUnit.MICROSECONDS.toNanos(tickMicros);
+
+        for (EventExecutor executor : group) {
+            dispensers.put(executor, new Dispenser(executor));
+        }
+    }
+
+    @Override
+    public void register(final Channel channel) {
+        final Dispenser dispenser = dispensers.get(channel.eventLoop());
+        if (dispenser != null) {
+            channel.eventLoop().execute(() -> dispenser.add(channel));
+        }
+    }
+
+    @Override
+    public void start() {
+        dispensers.values().forEach(Dispenser::start);
+    }
+
+    @Override
+    public void stop() {
+        dispensers.values().forEach(Dispenser::stop);
+    }
+
+    /**
+     * Token dispenser confined to one event loop.
+     */
+    private final class Dispenser implements Runnable {
+
+        private final EventExecutor executor;
+        private final List<Channel> channels = new ArrayList<>();
+        // next request by pool
+        private final int[] nextRequest = new int[requests.length];
+
+        private ScheduledFuture<?> future = null;
+        private long nextArrival = 0L;
+        private int nextChannel = 0;
+
+        private Dispenser(final EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        private void add(final Channel channel) {
+            channels.add(channel);
+            numChannels.incrementAndGet();
+            channel.closeFuture().addListener(f -> {
+                if (channels.remove(channel)) {
+                    numChannels.decrementAndGet();
+                }
+            });
+        }
+
+        private void start() {
+            if (resourceRate > 0) {
+                executor.execute(() -> {
+                    nextArrival = System.nanoTime();
+                    future = executor.scheduleAtFixedRate(this, tickMicros, tickMicros, TimeUnit.MICROSECONDS);
+                });
+            }
+        }
+
+        /**
+         * Mean interval between the arrivals of this loop at the given load, or zero if it owns no channel.
+         */
+        private double intervalNanos(double load) {
+            final int total = numChannels.get();
+            return channels.isEmpty() || total <= 0 ? 0.0 : NANOS_PER_SEC * total / (resourceRate * load * channels.size());
+        }
+
+        private void stop() {
+            executor.execute(() -> {
+                if (future != null && future.cancel(false)) {
+                    // arrivals still waiting for a free channel will never be sent
+                    final long now = System.nanoTime();
+                    final double load = ramp.load(now);
+                    final double intervalNanos = load > 0.0 ? intervalNanos(load) : 0.0;
+                    if (intervalNanos > 0.0 && nextArrival - now < 0) {
+                        monitorService.skippedAdd((long) ((now - nextArrival) / intervalNanos) + 1L);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            final long now = System.nanoTime();
+            final double load = ramp.load(now);
+            final double intervalNanos = load > 0.0 ? intervalNanos(load) : 0.0;
+            if (intervalNanos <= 0.0) {
+                nextArrival = now;
+                return;
+            }
+            if (load < 1.0 && nextArrival - now > intervalNanos) {
+                // the rate grew since the last arrival was drawn
+                nextArrival = now + (long) intervalNanos;
+            }
+            while (nextArrival - now <= 0) {
+                final Channel channel = nextFreeChannel();
+                if (channel == null) {
+                    return;
+                }
+                if (now - nextArrival > tickNanos) {
+                    monitorService.delayedIncr();
+                }
+                final int pool = poolOf(channel);
+                if (!write(channel, selectRequest(pool, nextRequest[pool]), nextArrival)) {
+                    // iterations budget (or sequential data feeder) exhausted: no more arrivals (nor skipped ones at stop)
+                    future.cancel(false);
+                    return;
+                }
+                nextRequest[pool] = (nextRequest[pool] + 1) % poolSize(pool);
+                nextArrival += distribution.nextInterval(intervalNanos);
+            }
+        }
+
+        private Channel nextFreeChannel() {
+            final int numChannels = channels.size();
+            for (int count = 0; count < numChannels; count++) {
+                if (nextChannel >= numChannels) {
+                    nextChannel = 0;
+                }
+                final Channel channel = channels.get(nextChannel++);
+                if (isFree(channel)) {
+                    return channel;
+                }
+            }
+            return null;
+        }
+    }
+}
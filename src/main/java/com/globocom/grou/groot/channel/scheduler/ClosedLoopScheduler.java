@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import static com.globocom.grou.groot.channel.handler.InFlightRequests.IN_FLIGHT_ATTR;
+import static com.globocom.grou.groot.channel.handler.ResponseListener.RESPONSE_LISTENER_ATTR;
+
+import com.globocom.grou.groot.channel.RequestTemplate;
+import com.globocom.grou.groot.channel.handler.ResponseListener;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
+
+/**
+ * Closed model: every connection keeps a fixed number of requests in flight and sends the next one only when
+ * a response completes. There are no timers, so it measures the maximum sustainable throughput per connection.
+ */
+public class ClosedLoopScheduler extends AbstractRequestScheduler {
+
+    private final int depth;
+
+    private volatile boolean running = true;
+
+    public ClosedLoopScheduler(RequestTemplate[] requests, MonitorService monitorService, int depth) {
+        super(requests, monitorService);
+        this.depth = Math.max(1, depth);
+    }
+
+    @Override
+    public void register(final Channel channel) {
+        channel.eventLoop().execute(() -> {
+            final Loop loop = new Loop();
+            channel.attr(RESPONSE_LISTENER_ATTR).set(loop);
+            if (channel.attr(IN_FLIGHT_ATTR).get() != null) {
+                loop.onReady(channel);
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Request loop of one channel: keeps it filled up to the depth (or the peer concurrent streams limit).
+     */
+    private final class Loop implements ResponseListener {
+
+        private int nextRequest = 0;
+
+        @Override
+        public void onReady(Channel channel) {
+            fill(channel);
+        }
+
+        @Override
+        public void onResponse(Channel channel) {
+            fill(channel);
+        }
+
+        private void fill(Channel channel) {
+            final int pool = poolOf(channel);
+            for (int count = 0; count < depth && running && channel.isActive() && hasCapacity(channel, depth); count++) {
+                if (!write(channel, selectRequest(pool, nextRequest), System.nanoTime())) {
+                    return;
+                }
+                nextRequest = (nextRequest + 1) % poolSize(pool);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import static com.globocom.grou.groot.channel.handler.InFlightRequests.IN_FLIGHT_ATTR;
+import static com.globocom.grou.groot.channel.handler.ResponseListener.RESPONSE_LISTENER_ATTR;
+
+import com.globocom.grou.groot.channel.RequestTemplate;
+import com.globocom.grou.groot.channel.handler.InFlightRequests;
+import com.globocom.grou.groot.channel.handler.ResponseListener;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
+import io.netty.handler.ssl.SslHandler;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Non persistent connections (keepAlive false): every connection sends one request, once the TLS handshake (if
+ * any) is done, and is closed when the response arrives. The slot reconnects right away, so the load is set by the
+ * connections rate (connectRate) and the number of connections, not by a requests rate. In handshake only mode,
+ * the connection is closed as soon as the TLS handshake is done, without any request.
+ */
+public class ConnectionPerRequestScheduler extends AbstractRequestScheduler implements ResponseListener {
+
+    // next request by pool
+    private final AtomicIntegerArray nextRequest;
+
+    private volatile boolean running = true;
+    private boolean handshakeOnly = false;
+
+    public ConnectionPerRequestScheduler(RequestTemplate[] requests, MonitorService monitorService) {
+        super(requests, monitorService);
+        this.nextRequest = new AtomicIntegerArray(requests.length);
+    }
+
+    public ConnectionPerRequestScheduler setHandshakeOnly(boolean handshakeOnly) {
+        this.handshakeOnly = handshakeOnly;
+        return this;
+    }
+
+    @Override
+    public void register(final Channel channel) {
+        channel.eventLoop().execute(() -> {
+            channel.attr(RESPONSE_LISTENER_ATTR).set(this);
+            final SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+            if (sslHandler != null) {
+                sslHandler.handshakeFuture().addListener(future -> {
+                    if (future.isSuccess() && handshakeOnly) {
+                        final InFlightRequests inFlightRequests = channel.attr(IN_FLIGHT_ATTR).get();
+                        if (inFlightRequests != null) {
+                            inFlightRequests.markServed();
+                        }
+                        channel.close();
+                    } else if (future.isSuccess()) {
+                        send(channel);
+                    }
+                });
+            } else if (handshakeOnly) {
+                // no TLS, nothing to do
+                channel.close();
+            } else {
+                send(channel);
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void onReady(Channel channel) {
+        // the request is sent once the connection is registered
+    }
+
+    @Override
+    public void onResponse(Channel channel) {
+        channel.close();
+    }
+
+    private void send(Channel channel) {
+        if (running && channel.isActive()) {
+            final int pool = poolOf(channel);
+            final int request = Math.floorMod(nextRequest.getAndIncrement(pool), poolSize(pool));
+            // if the iterations budget (or the data feeder) is exhausted, the connection just stays idle
+            write(channel, selectRequest(pool, request), System.nanoTime());
+        }
+    }
+}
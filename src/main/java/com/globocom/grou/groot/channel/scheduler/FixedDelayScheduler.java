@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import com.globocom.grou.groot.channel.RequestTemplate;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per channel tick: every fixedDelay microseconds all requests (or one from the weighted mix) are written to each
+ * active channel.
+ */
+public class FixedDelayScheduler extends AbstractRequestScheduler {
+
+    private final Set<ScheduledFuture<?>> futures = ConcurrentHashMap.newKeySet();
+    private final int fixedDelay;
+
+    public FixedDelayScheduler(RequestTemplate[] requests, MonitorService monitorService, int fixedDelay) {
+        super(requests, monitorService);
+        this.fixedDelay = fixedDelay;
+    }
+
+    @Override
+    public void register(final Channel channel) {
+        final Tick tick = new Tick(channel);
+        final ScheduledFuture<?> scheduledFuture = channel.eventLoop()
+            .scheduleAtFixedRate(tick, fixedDelay, fixedDelay, TimeUnit.MICROSECONDS);
+        tick.future = scheduledFuture;
+        futures.add(scheduledFuture);
+        channel.closeFuture().addListener(future -> {
+            scheduledFuture.cancel(false);
+            futures.remove(scheduledFuture);
+        });
+    }
+
+    @Override
+    public void start() {
+        // ticks are started per channel on register
+    }
+
+    @Override
+    public void stop() {
+        futures.forEach(future -> future.cancel(true));
+        futures.clear();
+    }
+
+    private final class Tick implements Runnable {
+
+        private final Channel channel;
+        private final long periodNanos = TimeUnit.MICROSECONDS.toNanos(fixedDelay);
+        private long intendedStart = System.nanoTime() + periodNanos;
+        private volatile ScheduledFuture<?> future = null;
+
+        private Tick(final Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            // late ticks are run back to back, so the intended start keeps the original fixed rate
+            if (channel.isActive()) {
+                // with a weighted mix a tick sends one sampled request, otherwise all the requests (of the pool) in order
+                final int pool = poolOf(channel);
+                final int requestsPerTick = hasRequestMix() ? 1 : poolSize(pool);
+                for (int request = 0; request < requestsPerTick; request++) {
+                    if (isFree(channel)) {
+                        if (!write(channel, selectRequest(pool, request), intendedStart)) {
+                            // budget (or feeder) exhausted: nothing more to send on this channel
+                            cancel();
+                            return;
+                        }
+                    } else {
+                        monitorService.skippedIncr();
+                    }
+                }
+            }
+            intendedStart += periodNanos;
+        }
+
+        private void cancel() {
+            final ScheduledFuture<?> scheduledFuture = future;
+            if (scheduledFuture != null) {
+                scheduledFuture.cancel(false);
+                futures.remove(scheduledFuture);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed amount of requests shared by all the connections: the warm up requests first, then the measured ones.
+ * Lock-free, it can be acquired from any event loop.
+ */
+public class IterationBudget {
+
+    private final long warmupIterations;
+    private final long total;
+    private final AtomicLong issued = new AtomicLong(0L);
+
+    private Runnable onExhausted = () -> { };
+
+    public IterationBudget(long warmupIterations, long iterations) {
+        this.warmupIterations = warmupIterations;
+        this.total = warmupIterations + iterations;
+    }
+
+    public IterationBudget onExhausted(Runnable onExhausted) {
+        this.onExhausted = onExhausted;
+        return this;
+    }
+
+    /**
+     * Returns the iteration number, or -1 if all the iterations were issued.
+     */
+    public long acquire() {
+        final long iteration = issued.getAndIncrement();
+        if (iteration < total) {
+            if (iteration == total - 1) {
+                onExhausted.run();
+            }
+            return iteration;
+        }
+        return -1L;
+    }
+
+    /**
+     * All the iterations were issued (a concurrent acquire may still get the last one).
+     */
+    public boolean isExhausted() {
+        return issued.get() >= total;
+    }
+
+    public boolean isWarmup(long iteration) {
+        return iteration < warmupIterations;
+    }
+}
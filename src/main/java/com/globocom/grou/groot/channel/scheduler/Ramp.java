@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ramp up clock shared by the channel manager (connections) and the schedulers (request rate).
+ */
+public class Ramp {
+
+    public static final Ramp NONE = new Ramp(RampProfile.LINEAR, 0, 1);
+
+    private final RampProfile profile;
+    private final long periodNanos;
+    private final int steps;
+    private volatile long startNanos = System.nanoTime();
+
+    public Ramp(RampProfile profile, int periodSec, int steps) {
+        this.profile = profile;
+        this.periodNanos = TimeUnit.SECONDS.toNanos(Math.max(0, periodSec));
+        this.steps = Math.max(1, steps);
+    }
+
+    public Ramp start() {
+        startNanos = System.nanoTime();
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return periodNanos > 0;
+    }
+
+    /**
+     * Fraction (0..1) of the target load at the instant nowNanos.
+     */
+    public double load(long nowNanos) {
+        final long elapsedNanos = nowNanos - startNanos;
+        if (periodNanos == 0 || elapsedNanos >= periodNanos) {
+            return 1.0;
+        }
+        return elapsedNanos <= 0 ? 0.0 : Math.min(1.0, profile.load((double) elapsedNanos / periodNanos, steps));
+    }
+
+    /**
+     * Delay, from now, until the ramp reaches the given fraction of the target load.
+     */
+    public long delayNanos(double load) {
+        if (periodNanos == 0) {
+            return 0L;
+        }
+        final long dueNanos = startNanos + (long) (profile.elapsed(Math.min(1.0, load), steps) * periodNanos);
+        return Math.max(0L, dueNanos - System.nanoTime());
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+/**
+ * Shape of the ramp up: maps the elapsed fraction of the ramp period (0..1) to the fraction of the target load.
+ */
+public enum RampProfile {
+    LINEAR {
+        @Override
+        public double load(double elapsed, int steps) {
+            return elapsed;
+        }
+
+        @Override
+        public double elapsed(double load, int steps) {
+            return load;
+        }
+    },
+    STEP {
+        @Override
+        public double load(double elapsed, int steps) {
+            return Math.floor(elapsed * steps) / steps;
+        }
+
+        @Override
+        public double elapsed(double load, int steps) {
+            return Math.ceil(load * steps) / steps;
+        }
+    },
+    EXPONENTIAL {
+        private final double growth = 5.0;
+        private final double scale = Math.expm1(growth);
+
+        @Override
+        public double load(double elapsed, int steps) {
+            return Math.expm1(growth * elapsed) / scale;
+        }
+
+        @Override
+        public double elapsed(double load, int steps) {
+            return Math.log1p(load * scale) / growth;
+        }
+    };
+
+    public abstract double load(double elapsed, int steps);
+
+    public abstract double elapsed(double load, int steps);
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import static com.globocom.grou.groot.channel.ChannelManager.SLOT_ATTR;
+import static com.globocom.grou.groot.channel.handler.CookieJar.COOKIE_JAR_ATTR;
+import static com.globocom.grou.groot.channel.handler.InFlightRequests.IN_FLIGHT_ATTR;
+import static com.globocom.grou.groot.channel.handler.ResponseListener.RESPONSE_LISTENER_ATTR;
+
+import com.globocom.grou.groot.channel.RequestTemplate;
+import com.globocom.grou.groot.channel.handler.CookieJar;
+import com.globocom.grou.groot.channel.handler.ResponseListener;
+import com.globocom.grou.groot.monit.MonitorService;
+import io.netty.channel.Channel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Virtual users: every user owns connsPerUser connections (consecutive slots), a cookie jar and its own pass
+ * through the requests sequence. Each connection of a user sends one request, waits for the response and
+ * thinks before the next one. Think times are scheduled on the channel event loop (no thread per user).
+ */
+public class VirtualUserScheduler extends AbstractRequestScheduler {
+
+    private final VirtualUser[] users;
+    private final int connsPerUser;
+    private final double thinkTimeNanos;
+    private final ArrivalDistribution thinkTimeDistribution;
+
+    private volatile boolean running = true;
+
+    public VirtualUserScheduler(
+        RequestTemplate[] requests,
+        MonitorService monitorService,
+        int numUsers,
+        int connsPerUser,
+        long thinkTimeMillis,
+        ArrivalDistribution thinkTimeDistribution) {
+
+        super(requests, monitorService);
+        this.connsPerUser = connsPerUser;
+        this.thinkTimeNanos = TimeUnit.MILLISECONDS.toNanos(thinkTimeMillis);
+        this.thinkTimeDistribution = thinkTimeDistribution;
+        this.users = new VirtualUser[numUsers];
+        for (int userId = 0; userId < numUsers; userId++) {
+            users[userId] = new VirtualUser(requests.length);
+        }
+    }
+
+    @Override
+    public void register(final Channel channel) {
+        final Integer slot = channel.attr(SLOT_ATTR).get();
+        if (slot == null || slot / connsPerUser >= users.length) {
+            return;
+        }
+        final VirtualUser user = users[slot / connsPerUser];
+        channel.eventLoop().execute(() -> {
+            final Session session = new Session(user);
+            channel.attr(COOKIE_JAR_ATTR).set(user.cookieJar);
+            channel.attr(RESPONSE_LISTENER_ATTR).set(session);
+            if (channel.attr(IN_FLIGHT_ATTR).get() != null) {
+                session.onReady(channel);
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    private static final class VirtualUser {
+
+        private final CookieJar cookieJar = new CookieJar();
+        // next request by pool
+        private final AtomicIntegerArray nextRequest;
+
+        private VirtualUser(int numRequests) {
+            this.nextRequest = new AtomicIntegerArray(numRequests);
+        }
+    }
+
+    /**
+     * One connection of a virtual user.
+     */
+    private final class Session implements ResponseListener {
+
+        private final VirtualUser user;
+
+        private Session(VirtualUser user) {
+            this.user = user;
+        }
+
+        @Override
+        public void onReady(Channel channel) {
+            next(channel, System.nanoTime());
+        }
+
+        @Override
+        public void onResponse(Channel channel) {
+            final long thinkTime = thinkTimeNanos > 0.0 ? thinkTimeDistribution.nextInterval(thinkTimeNanos) : 0L;
+            if (thinkTime > 0L) {
+                final long intendedStart = System.nanoTime() + thinkTime;
+                channel.eventLoop().schedule(() -> next(channel, intendedStart), thinkTime, TimeUnit.NANOSECONDS);
+            } else {
+                next(channel, System.nanoTime());
+            }
+        }
+
+        private void next(Channel channel, long intendedStart) {
+            if (running && channel.isActive() && hasCapacity(channel, 1)) {
+                final int pool = poolOf(channel);
+                final int request = Math.floorMod(user.nextRequest.getAndIncrement(pool), poolSize(pool));
+                write(channel, selectRequest(pool, request), intendedStart);
+            }
+        }
+    }
+}
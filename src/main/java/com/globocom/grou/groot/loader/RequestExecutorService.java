@@ -19,15 +19,38 @@ package com.globocom.grou.groot.loader;
 import com.globocom.grou.groot.SystemEnv;
 import com.globocom.grou.groot.channel.BootstrapBuilder;
 import com.globocom.grou.groot.channel.ChannelManager;
+import com.globocom.grou.groot.channel.HostPools;
+import com.globocom.grou.groot.channel.RequestTemplate;
 import com.globocom.grou.groot.channel.RequestUtils;
 import com.globocom.grou.groot.channel.SslService;
+import com.globocom.grou.groot.channel.TlsProfile;
+import com.globocom.grou.groot.channel.feeder.DataFeeder;
+import com.globocom.grou.groot.channel.feeder.FeederStrategy;
+import com.globocom.grou.groot.channel.scheduler.AbstractRequestScheduler;
+import com.globocom.grou.groot.channel.scheduler.AliasTable;
+import com.globocom.grou.groot.channel.scheduler.ArrivalDistribution;
+import com.globocom.grou.groot.channel.scheduler.ArrivalRateScheduler;
+import com.globocom.grou.groot.channel.scheduler.ClosedLoopScheduler;
+import com.globocom.grou.groot.channel.scheduler.ConnectionPerRequestScheduler;
+import com.globocom.grou.groot.channel.scheduler.FixedDelayScheduler;
+import com.globocom.grou.groot.channel.scheduler.IterationBudget;
+import com.globocom.grou.groot.channel.scheduler.Ramp;
+import com.globocom.grou.groot.channel.scheduler.RampProfile;
+import com.globocom.grou.groot.channel.scheduler.RequestScheduler;
+import com.globocom.grou.groot.channel.scheduler.VirtualUserScheduler;
 import com.globocom.grou.groot.monit.MonitorService;
 import com.globocom.grou.groot.test.properties.BaseProperty;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,9 +72,17 @@ public class RequestExecutorService {
 
     public void submit(BaseProperty property) throws RuntimeException {
         int numConn = property.getNumConn() / property.getParallelLoaders();
+        int connsPerUser = Optional.ofNullable(property.getConnsPerUser()).orElse(1);
+        int numUsers = 0;
+        if (property.getUsers() != null || property.getConnsPerUser() != null) {
+            numUsers = property.getUsers() != null ? perLoader(property.getUsers(), property.getParallelLoaders()) : Math.max(1, numConn / connsPerUser);
+            numConn = numUsers * connsPerUser;
+        }
         int maxTestDuration = Integer.parseInt(SystemEnv.MAX_TEST_DURATION.getValue());
         int durationSec = getDurationSec(property, maxTestDuration);
         int fixedDelay = property.getFixedDelay();
+        boolean handshakeOnly = Boolean.TRUE.equals(property.getTlsHandshakeOnly());
+        boolean keepAlive = !Boolean.FALSE.equals(property.getKeepAlive()) && !handshakeOnly;
 
         String scheme = RequestUtils.extractScheme(property);
         if (scheme == null) {
@@ -62,29 +93,194 @@ public class RequestExecutorService {
 
         final FullHttpRequest[] requests = RequestUtils.convertPropertyToHttpRequest(property);
         final Proto proto = Proto.valueOf(scheme.toUpperCase());
+        final double[] weights = RequestUtils.requestWeights(property);
+        final HostPools hostPools = new HostPools(RequestUtils.requestUris(property), weights)
+            .setConnsPerHost(perLoader(property.getNumConnPerHost(), property.getParallelLoaders()));
         final Bootstrap bootstrap = BootstrapBuilder.build(property);
-        final ChannelManager channelManager = new ChannelManager()
-            .setBootstrap(bootstrap)
-            .setMonitorService(monitorService)
-            .setSslService(sslService)
-            .setProto(proto)
-            .setDurationSec(durationSec)
-            .setFixedDelay(fixedDelay)
-            .setRequests(requests)
-            .setNumConn(numConn)
-            .check();
-
-        CountDownLatch done = channelManager.closeFutureChannels();
-        channelManager.activeChannels();
-        boolean forceReconnect = property.getForceReconnect();
-        if (forceReconnect) {
-            channelManager.reconnect();
-        }
+        final Ramp ramp = newRamp(property);
+        final DataFeeder feeder = newDataFeeder(property);
+        final RequestTemplate[] templates = IntStream.range(0, requests.length)
+            .mapToObj(requestId -> new RequestTemplate(requests[requestId], hostPools.requestProto(requestId), feeder))
+            .toArray(RequestTemplate[]::new);
         try {
-            done.await(durationSec + 10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            LOGGER.warn("Test OverTime");
+            final AliasTable[] requestMix = newRequestMix(requests, weights, hostPools);
+            final IterationBudget iterationBudget = newIterationBudget(property);
+            final RequestScheduler scheduler = newScheduler(property, proto, bootstrap, templates, fixedDelay, ramp, iterationBudget, numUsers, connsPerUser)
+                .setPoolRequests(hostPools.poolRequests())
+                .setRequestMix(requestMix);
+            final ChannelManager channelManager = new ChannelManager()
+                .setBootstrap(bootstrap)
+                .setMonitorService(monitorService)
+                .setSslService(sslService)
+                .setScheduler(scheduler)
+                .setRamp(ramp)
+                .setHostPools(hostPools)
+                .setDurationSec(durationSec)
+                .setNumConn(numConn)
+                .setConnectRate(perLoader(property.getConnectRate(), property.getParallelLoaders()))
+                .setMaxPendingConnects(perLoader(property.getMaxPendingConnects(), property.getParallelLoaders()))
+                .setReconnectRate(perLoader(keepAlive ? property.getReconnectRate() :
+                    Optional.ofNullable(property.getReconnectRate()).orElse(property.getConnectRate()), property.getParallelLoaders()))
+                .setForceReconnect(Boolean.TRUE.equals(property.getForceReconnect()) || !keepAlive)
+                .setKeepAlive(keepAlive)
+                .setResolve(property.getResolve())
+                .setTlsSessionResumption(Boolean.TRUE.equals(property.getTlsSessionResumption()))
+                .setTlsProfiles(TlsProfile.matrix(property.getTlsProtocols(), property.getTlsCurves(), property.getTlsCiphers()))
+                .setMaxRedirects(Boolean.TRUE.equals(property.getFollowRedirect()) ? Optional.ofNullable(property.getMaxRedirects()).orElse(0) : 0)
+                .check();
+            if (iterationBudget != null) {
+                iterationBudget.onExhausted(channelManager::finishWhenDrained);
+            }
+            if (feeder != null) {
+                feeder.onExhausted(channelManager::finishWhenDrained);
+            }
+
+            CountDownLatch done = channelManager.closeFutureChannels();
+            ramp.start();
+            // the ramp up starts where the due slots end, so no slot is skipped meanwhile
+            channelManager.rampUpChannels(channelManager.activeChannels());
+            scheduler.start();
+            try {
+                done.await(durationSec + 10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOGGER.warn("Test OverTime");
+            }
+        } finally {
+            // the encoded requests and bodies are pooled (or direct) buffers
+            Arrays.stream(templates).forEach(RequestTemplate::release);
+        }
+    }
+
+    private Ramp newRamp(BaseProperty property) {
+        int rateRampUpPeriod = Optional.ofNullable(property.getRateRampUpPeriod()).orElse(0);
+        if (rateRampUpPeriod > 0) {
+            final RampProfile profile = RampProfile.valueOf(Optional.ofNullable(property.getRampProfile()).orElse("linear").toUpperCase());
+            LOGGER.info("Using " + profile.name().toLowerCase() + " ramp up (" + rateRampUpPeriod + " s)");
+            return new Ramp(profile, rateRampUpPeriod, Optional.ofNullable(property.getRampSteps()).orElse(1));
+        }
+        return Ramp.NONE;
+    }
+
+    private DataFeeder newDataFeeder(BaseProperty property) {
+        if (property.getFeeder() != null) {
+            final FeederStrategy strategy = FeederStrategy.valueOf(Optional.ofNullable(property.getFeederStrategy()).orElse("circular").toUpperCase());
+            return new DataFeeder(Paths.get(property.getFeeder()), strategy);
+        }
+        return null;
+    }
+
+    /**
+     * Weighted requests mix of every host pool (null if the pool requests weights are all zero).
+     */
+    private AliasTable[] newRequestMix(FullHttpRequest[] requests, double[] weights, HostPools hostPools) {
+        // with several hosts, the request types are named by host too
+        monitorService.setRequestTypes(Arrays.stream(requests)
+            .map(request -> request.method() + " " + (hostPools.size() > 1 ? request.headers().get(HttpHeaderNames.HOST) : "") + request.uri())
+            .toArray(String[]::new), weights);
+        if (weights != null) {
+            LOGGER.info("Using weighted requests mix: " + Arrays.toString(weights));
+            return Arrays.stream(hostPools.poolRequests())
+                .map(requestIds -> Arrays.stream(requestIds).mapToDouble(requestId -> weights[requestId]).toArray())
+                .map(poolWeights -> Arrays.stream(poolWeights).sum() > 0.0 ? new AliasTable(poolWeights) : null)
+                .toArray(AliasTable[]::new);
+        }
+        return null;
+    }
+
+    private IterationBudget newIterationBudget(BaseProperty property) {
+        int iterations = perLoader(property.getIterations(), property.getParallelLoaders());
+        if (iterations > 0) {
+            int warmupIterations = perLoader(property.getWarmupIterations(), property.getParallelLoaders());
+            LOGGER.info("Using iterations: " + iterations + " (after " + warmupIterations + " warm up iterations)");
+            return new IterationBudget(warmupIterations, iterations);
+        }
+        return null;
+    }
+
+    private AbstractRequestScheduler newScheduler(
+        BaseProperty property,
+        Proto proto,
+        Bootstrap bootstrap,
+        RequestTemplate[] requests,
+        int fixedDelay,
+        Ramp ramp,
+        IterationBudget iterationBudget,
+        int numUsers,
+        int connsPerUser) {
+
+        int resourceRate = Optional.ofNullable(property.getResourceRate()).orElse(0) / property.getParallelLoaders();
+        int maxRequestsQueued = inFlightLimit(property, proto);
+        if (Boolean.TRUE.equals(property.getTlsHandshakeOnly())) {
+            LOGGER.info("Using TLS handshakes only (no request)");
+            return new ConnectionPerRequestScheduler(requests, monitorService)
+                .setHandshakeOnly(true);
+        }
+        if (Boolean.FALSE.equals(property.getKeepAlive())) {
+            LOGGER.info("Using non persistent connections (one request per connection)");
+            return new ConnectionPerRequestScheduler(requests, monitorService)
+                .setIterationBudget(iterationBudget);
+        }
+        if (numUsers > 0) {
+            final ArrivalDistribution thinkTimeDistribution = ArrivalDistribution.valueOf(
+                Optional.ofNullable(property.getArrivalDistribution()).orElse("constant").toUpperCase());
+            int thinkTime = Optional.ofNullable(property.getThinkTime()).orElse(0);
+            LOGGER.info("Using virtual users: " + numUsers + " user(s) x " + connsPerUser + " conn(s), think time " + thinkTime + " ms");
+            return new VirtualUserScheduler(requests, monitorService, numUsers, connsPerUser, thinkTime, thinkTimeDistribution)
+                .setIterationBudget(iterationBudget);
+        }
+        if (Boolean.TRUE.equals(property.getClosedLoop())) {
+            LOGGER.info("Using closed model: " + Math.max(1, maxRequestsQueued) + " request(s) in flight per connection");
+            return new ClosedLoopScheduler(requests, monitorService, maxRequestsQueued)
+                .setIterationBudget(iterationBudget);
+        }
+        if (resourceRate > 0) {
+            final ArrivalDistribution distribution = ArrivalDistribution.valueOf(
+                Optional.ofNullable(property.getArrivalDistribution()).orElse("constant").toUpperCase());
+            LOGGER.info("Using open model: " + resourceRate + " req/s (" + distribution.name().toLowerCase() + " arrivals)");
+            return new ArrivalRateScheduler(bootstrap.config().group(), requests, monitorService, resourceRate, fixedDelay, distribution, ramp)
+                .setMaxRequestsQueued(maxRequestsQueued)
+                .setIterationBudget(iterationBudget);
+        }
+        return new FixedDelayScheduler(requests, monitorService, fixedDelay)
+            .setMaxRequestsQueued(maxRequestsQueued)
+            .setIterationBudget(iterationBudget);
+    }
+
+    /**
+     * Share of a global limit per loader. Zero (unlimited) stays zero.
+     */
+    private int perLoader(Integer limit, int parallelLoaders) {
+        int value = Optional.ofNullable(limit).orElse(0);
+        return value > 0 ? Math.max(1, value / parallelLoaders) : 0;
+    }
+
+    /**
+     * Share of the connections per host per loader.
+     */
+    private Map<String, Integer> perLoader(Map<String, Integer> connsPerHost, int parallelLoaders) {
+        final Map<String, Integer> perLoader = new HashMap<>();
+        if (connsPerHost != null) {
+            connsPerHost.forEach((host, conns) -> perLoader.put(host, perLoader(conns, parallelLoaders)));
+        }
+        return perLoader;
+    }
+
+    /**
+     * Requests in flight per connection. The HTTP/1.1 pipelining depth and the HTTP/2 concurrent streams limit,
+     * if defined, override maxRequestsQueued.
+     */
+    private int inFlightLimit(BaseProperty property, Proto proto) {
+        int pipelineDepth = Optional.ofNullable(property.getPipelineDepth()).orElse(0);
+        if (pipelineDepth > 0 && (proto == Proto.HTTP || proto == Proto.HTTPS)) {
+            LOGGER.info(pipelineDepth == 1 ? "HTTP/1.1 pipelining disabled" : "HTTP/1.1 pipelining depth: " + pipelineDepth);
+            return pipelineDepth;
+        }
+        int maxConcurrentStreams = Optional.ofNullable(property.getMaxConcurrentStreams()).orElse(0);
+        if (maxConcurrentStreams > 0 && (proto == Proto.H2 || proto == Proto.H2C)) {
+            LOGGER.info("HTTP/2 max concurrent streams per connection: " + maxConcurrentStreams);
+            return maxConcurrentStreams;
         }
+        return Optional.ofNullable(property.getMaxRequestsQueued()).orElse(0);
     }
 
     @SuppressWarnings("deprecation")
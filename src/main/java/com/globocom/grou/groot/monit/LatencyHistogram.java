@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.monit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free and allocation-free high dynamic range histogram (log-linear buckets, ~1% precision),
+ * recording values from 1 microsecond up to one hour.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+    private static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+
+    public static final long HIGHEST_TRACKABLE_MICROS = 3_600_000_000L;
+
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+    private final AtomicLongArray counts = new AtomicLongArray(countsIndexOf(HIGHEST_TRACKABLE_MICROS) + 1);
+    private final AtomicLong totalCount = new AtomicLong(0L);
+    private final AtomicLong maxValue = new AtomicLong(0L);
+
+    private static int bucketIndexOf(long value) {
+        return LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+    }
+
+    private static int countsIndexOf(long value) {
+        final int bucketIndex = bucketIndexOf(value);
+        final int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long highestEquivalentValueOf(int countsIndex) {
+        int bucketIndex = (countsIndex >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (countsIndex & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex << bucketIndex) + (1L << bucketIndex) - 1;
+    }
+
+    public void recordMicros(long value) {
+        final long micros = Math.min(Math.max(0L, value), HIGHEST_TRACKABLE_MICROS);
+        counts.incrementAndGet(countsIndexOf(micros));
+        totalCount.incrementAndGet();
+        long max;
+        while (micros > (max = maxValue.get()) && !maxValue.compareAndSet(max, micros)) {
+            // retry
+        }
+    }
+
+    public void recordNanos(long value) {
+        recordMicros(value / 1_000L);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxMicros() {
+        return maxValue.get();
+    }
+
+    public long percentileMicros(double percentile) {
+        final long total = totalCount.get();
+        if (total == 0) {
+            return 0L;
+        }
+        final long countAtPercentile = Math.max(1L, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * total));
+        long accum = 0L;
+        for (int index = 0; index < counts.length(); index++) {
+            accum += counts.get(index);
+            if (accum >= countAtPercentile) {
+                return Math.min(highestEquivalentValueOf(index), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Summary in milliseconds: p50, p90, p99, p99.9 and max (plus the number of samples).
+     */
+    public Map<String, Double> summary() {
+        final Map<String, Double> summary = new LinkedHashMap<>();
+        summary.put("count", (double) getTotalCount());
+        for (double percentile : PERCENTILES) {
+            summary.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile)),
+                percentileMicros(percentile) / 1_000.0);
+        }
+        summary.put("max", getMaxMicros() / 1_000.0);
+        return summary;
+    }
+
+    public void reset() {
+        for (int index = 0; index < counts.length(); index++) {
+            counts.set(index, 0L);
+        }
+        totalCount.set(0L);
+        maxValue.set(0L);
+    }
+}
@@ -27,9 +27,11 @@ import com.globocom.grou.groot.test.Test;
 import com.globocom.grou.groot.test.properties.BaseProperty;
 import io.galeb.statsd.StatsDClient;
 import java.io.IOException;
+import java.net.BindException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +40,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -61,6 +64,8 @@ public class MonitorService {
 
     private static final String LIST_SEPARATOR = ",";
 
+    private static final int MAX_PIPELINE_DEPTH_TRACKED = 16;
+
     private static final ObjectMapper MAPPER = new ObjectMapper().configure(SerializationFeature.INDENT_OUTPUT, true);
 
     private final String prefixTag = SystemEnv.PREFIX_TAG.getValue();
@@ -77,9 +82,43 @@ public class MonitorService {
     private final Map<String, Long> failCounter = new ConcurrentHashMap<>();
     private final AtomicLong sizeSum = new AtomicLong(0L);
     private final AtomicInteger writeAsync = new AtomicInteger(0);
+    private final AtomicLong skipped = new AtomicLong(0L);
+    private final AtomicLong delayed = new AtomicLong(0L);
+    private final AtomicLong connectFailed = new AtomicLong(0L);
+    private final AtomicLong reconnectFailed = new AtomicLong(0L);
+    private final Map<String, Long> connectFailReasons = new ConcurrentHashMap<>();
+    private final Map<String, Long> reconnectFailReasons = new ConcurrentHashMap<>();
+    private final AtomicLong redirectsExceeded = new AtomicLong(0L);
+    private final AtomicLong tlsHandshakeFailed = new AtomicLong(0L);
+    private final AtomicLong maxSocketsInUse = new AtomicLong(-1L);
+    private final AtomicLong maxSocketsTimeWait = new AtomicLong(-1L);
+    private final AtomicLong maxSocketsUsed = new AtomicLong(-1L);
+    private volatile AtomicLongArray requestsSent = new AtomicLongArray(0);
+    private volatile String[] requestNames = new String[0];
+    private volatile double[] requestWeights = null;
+    private volatile String[] tlsProfileNames = new String[0];
+    private volatile LatencyHistogram[] tlsProfileHistograms = new LatencyHistogram[0];
+    private volatile AtomicLongArray tlsProfileFailed = new AtomicLongArray(0);
+    private volatile AtomicLongArray tlsProfileStarts = new AtomicLongArray(0);
     private final AtomicInteger connCounter = new AtomicInteger(0);
     private final AtomicInteger connAccum = new AtomicInteger(0);
     private final Map<String, Object> results = new LinkedHashMap<>();
+    private final LatencyHistogram[] statusClassHistograms = newHistograms(6);
+    private final LatencyHistogram[] pipelineDepthHistograms = newHistograms(MAX_PIPELINE_DEPTH_TRACKED + 1);
+    private final LatencyHistogram failHistogram = new LatencyHistogram();
+    private final LatencyHistogram completedHistogram = new LatencyHistogram();
+    private final LatencyHistogram correctedHistogram = new LatencyHistogram();
+    private final LatencyHistogram connectHistogram = new LatencyHistogram();
+    private final LatencyHistogram reconnectHistogram = new LatencyHistogram();
+    private final LatencyHistogram redirectHopHistogram = new LatencyHistogram();
+    private final LatencyHistogram redirectChainHistogram = new LatencyHistogram();
+    private final LatencyHistogram tlsHandshakeHistogram = new LatencyHistogram();
+    private final LatencyHistogram tlsResumedHistogram = new LatencyHistogram();
+    private final LatencyHistogram dnsHistogram = new LatencyHistogram();
+    private final LatencyHistogram tcpConnectHistogram = new LatencyHistogram();
+    private final LatencyHistogram writeHistogram = new LatencyHistogram();
+    private final LatencyHistogram firstByteHistogram = new LatencyHistogram();
+    private final LatencyHistogram downloadHistogram = new LatencyHistogram();
 
     private long testStart = System.currentTimeMillis();
 
@@ -90,6 +129,14 @@ public class MonitorService {
         this.statsdClient = statsdService.client();
     }
 
+    private static LatencyHistogram[] newHistograms(int size) {
+        final LatencyHistogram[] histograms = new LatencyHistogram[size];
+        for (int index = 1; index < histograms.length; index++) {
+            histograms[index] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
     public void start(final Test test) {
         synchronized (lock) {
             testStart = System.currentTimeMillis();
@@ -172,12 +219,50 @@ public class MonitorService {
             prefixStatsdLoaderKey = getPrefixStatsdLoader(null);
             prefixStatsdTargetsKey = getPrefixStatsdTargets(null);
             writeAsync.set(0);
+            skipped.set(0);
+            delayed.set(0);
+            connectFailed.set(0);
+            reconnectFailed.set(0);
+            connectFailReasons.clear();
+            reconnectFailReasons.clear();
+            redirectsExceeded.set(0);
+            tlsHandshakeFailed.set(0);
+            maxSocketsInUse.set(-1L);
+            maxSocketsTimeWait.set(-1L);
+            maxSocketsUsed.set(-1L);
+            requestsSent = new AtomicLongArray(0);
+            requestNames = new String[0];
+            requestWeights = null;
+            tlsProfileNames = new String[0];
+            tlsProfileHistograms = new LatencyHistogram[0];
+            tlsProfileFailed = new AtomicLongArray(0);
+            tlsProfileStarts = new AtomicLongArray(0);
             sizeSum.set(0);
             connCounter.set(0);
             connAccum.set(0);
             statusCounter.clear();
             failCounter.clear();
             results.clear();
+            for (int statusClass = 1; statusClass < statusClassHistograms.length; statusClass++) {
+                statusClassHistograms[statusClass].reset();
+            }
+            for (int depth = 1; depth < pipelineDepthHistograms.length; depth++) {
+                pipelineDepthHistograms[depth].reset();
+            }
+            failHistogram.reset();
+            completedHistogram.reset();
+            correctedHistogram.reset();
+            connectHistogram.reset();
+            reconnectHistogram.reset();
+            redirectHopHistogram.reset();
+            redirectChainHistogram.reset();
+            tlsHandshakeHistogram.reset();
+            tlsResumedHistogram.reset();
+            dnsHistogram.reset();
+            tcpConnectHistogram.reset();
+            writeHistogram.reset();
+            firstByteHistogram.reset();
+            downloadHistogram.reset();
         }
     }
 
@@ -194,40 +279,64 @@ public class MonitorService {
     }
 
     public void fail(final Throwable t) {
-        if (t != null && t.getMessage() != null) {
-            boolean isInternalProblem = t.getMessage().contains("executor not accepting a task");
-            String messageException = t.getMessage();
-            if (!isInternalProblem) {
-                if (messageException.contains("connection timed out")) {
-                    messageException = "connection_timeout";
-                } else if (messageException.contains("request timeout")) {
-                    messageException = "request_timeout";
-                } else if (t instanceof java.net.ConnectException) {
-                    messageException = "conn_fail";
-                } else if (t instanceof java.net.UnknownHostException) {
-                    messageException = "unknown_host";
-                } else if (t instanceof java.net.NoRouteToHostException) {
-                    messageException = "no_route";
-                } else if (messageException.startsWith("defaultchannelpromise")) {
-                    messageException = "channelpromise_incomplete";
-                } else if (messageException.startsWith("unable_to_create_channel_from")) {
-                    messageException = "unable_to_create_channel";
-                }
-            }
-            messageException = sanitize(messageException, "_").replaceAll(".*Exception__", "");
-            sendFakeResponseToStatsd(messageException, System.currentTimeMillis(), true);
-            failedIncr(messageException);
+        final String reason = failReason(t);
+        if (reason != null) {
+            sendFakeResponseToStatsd(reason, System.nanoTime(), true);
+            failedIncr(reason);
+            LOGGER.error(t);
+        }
+    }
+
+    /**
+     * Connect (or reconnect) failed: counted with its reason under connects (or reconnects) only, not as a
+     * response status.
+     */
+    public void connectFail(final Throwable t, boolean reconnect) {
+        (reconnect ? reconnectFailed : connectFailed).incrementAndGet();
+        final String reason = failReason(t);
+        if (reason != null) {
+            (reconnect ? reconnectFailReasons : connectFailReasons).merge(reason, 1L, Long::sum);
+            sendFakeResponseToStatsd(reason, System.nanoTime(), false);
             LOGGER.error(t);
         }
     }
 
+    private String failReason(final Throwable t) {
+        if (t == null || t.getMessage() == null) {
+            return null;
+        }
+        boolean isInternalProblem = t.getMessage().contains("executor not accepting a task");
+        String messageException = t.getMessage();
+        if (!isInternalProblem) {
+            if (messageException.contains("Cannot assign requested address") || t instanceof BindException) {
+                // no local port available (e.g. all in TIME_WAIT)
+                messageException = "port_exhausted";
+            } else if (messageException.contains("connection timed out")) {
+                messageException = "connection_timeout";
+            } else if (messageException.contains("request timeout")) {
+                messageException = "request_timeout";
+            } else if (t instanceof java.net.ConnectException) {
+                messageException = "conn_fail";
+            } else if (t instanceof java.net.UnknownHostException) {
+                messageException = "unknown_host";
+            } else if (t instanceof java.net.NoRouteToHostException) {
+                messageException = "no_route";
+            } else if (messageException.startsWith("defaultchannelpromise")) {
+                messageException = "channelpromise_incomplete";
+            } else if (messageException.startsWith("unable_to_create_channel_from")) {
+                messageException = "unable_to_create_channel";
+            }
+        }
+        return sanitize(messageException, "_").replaceAll(".*Exception__", "");
+    }
+
     private void sendFakeResponseToStatsd(String statusCode) {
-        sendFakeResponseToStatsd(statusCode, System.currentTimeMillis(), false);
+        sendFakeResponseToStatsd(statusCode, System.nanoTime(), false);
     }
 
     private void sendFakeResponseToStatsd(String statusCode, long start, boolean needCount) {
-        statsdClient.recordExecutionTime(prefixResponse + "status." + prefixTag + "status." + statusCode, System.currentTimeMillis() - start);
-        sendResponseTime(start);
+        statsdClient.recordExecutionTime(prefixResponse + "status." + prefixTag + "status." + statusCode, elapsedMillis(start));
+        sendResponseTimeToStatsd(start, start);
         sendSize(0);
         if (needCount) {
             counterFromStatus(statusCode);
@@ -247,9 +356,34 @@ public class MonitorService {
         return realStatus;
     }
 
-    public void sendStatus(String statusCode, Long startRequest) {
+    private long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public void sendStatus(String statusCode, long startRequest) {
         String realStatus = counterFromStatus(statusCode);
-        statsdClient.recordExecutionTime(prefixResponse + "status." + prefixTag + "status." + realStatus, System.currentTimeMillis() - startRequest);
+        long elapsed = System.nanoTime() - startRequest;
+        statsdClient.recordExecutionTime(prefixResponse + "status." + prefixTag + "status." + realStatus, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        int statusClass = IS_INT.matcher(statusCode).matches() ? Integer.parseInt(statusCode) / 100 : 0;
+        if (statusClass > 0 && statusClass < statusClassHistograms.length) {
+            statusClassHistograms[statusClass].recordNanos(elapsed);
+        }
+    }
+
+    /**
+     * Records the age of a request lost because its channel failed.
+     */
+    public void sendFailTime(long startRequest) {
+        failHistogram.recordNanos(System.nanoTime() - startRequest);
+    }
+
+    /**
+     * Records the response time of a HTTP/1.1 request by its position in the pipeline when written
+     * (deeper positions are accounted in the last tracked depth).
+     */
+    public void sendPipelineResponseTime(int depth, long startRequest) {
+        final int index = Math.max(1, Math.min(depth, MAX_PIPELINE_DEPTH_TRACKED));
+        pipelineDepthHistograms[index].recordNanos(System.nanoTime() - startRequest);
     }
 
     public void sendSize(long bodySize) {
@@ -259,8 +393,20 @@ public class MonitorService {
         }
     }
 
-    public void sendResponseTime(long startRequest) {
-        statsdClient.recordExecutionTime(prefixResponse + "completed", System.currentTimeMillis() - startRequest);
+    /**
+     * Records the response time measured from the real write (completed) and from the
+     * instant the scheduler intended to send the request (corrected, coordinated omission free).
+     */
+    public void sendResponseTime(long startRequest, long intendedStartRequest) {
+        final long now = System.nanoTime();
+        completedHistogram.recordNanos(now - startRequest);
+        correctedHistogram.recordNanos(now - intendedStartRequest);
+        sendResponseTimeToStatsd(startRequest, intendedStartRequest);
+    }
+
+    private void sendResponseTimeToStatsd(long startRequest, long intendedStartRequest) {
+        statsdClient.recordExecutionTime(prefixResponse + "completed", elapsedMillis(startRequest));
+        statsdClient.recordExecutionTime(prefixResponse + "corrected", elapsedMillis(intendedStartRequest));
     }
 
     @Scheduled(fixedRate = 1000)
@@ -270,6 +416,13 @@ public class MonitorService {
                 statsdClient.recordExecutionTime(prefixStatsdLoaderKey + "conns", Math.max(0, connCounter.get()));
                 statsdClient.recordExecutionTime(prefixStatsdLoaderKey + "cpu", (long) (100 * SystemInfo.cpuLoad()));
                 statsdClient.recordExecutionTime(prefixStatsdLoaderKey + "memFree", SystemInfo.memFree() / 1024 / 1024);
+                final long[] tcpSockets = SystemInfo.tcpSockets();
+                if (tcpSockets != null) {
+                    maxSocketsInUse.accumulateAndGet(tcpSockets[0], Math::max);
+                    maxSocketsTimeWait.accumulateAndGet(tcpSockets[1], Math::max);
+                    maxSocketsUsed.accumulateAndGet(tcpSockets[0] + tcpSockets[1], Math::max);
+                    statsdClient.recordExecutionTime(prefixStatsdLoaderKey + "timeWait", tcpSockets[1]);
+                }
 
                 targets.forEach(target -> {
                     String prefixStatsd = prefixStatsdTargetsKey + target.getKey() + ".";
@@ -303,6 +456,126 @@ public class MonitorService {
         }
     }
 
+    /**
+     * Records the time to establish a connection (from the connect call to the TCP connection established).
+     * Reconnections are recorded apart from the initial connections.
+     */
+    public void sendConnectTime(long startConnect, boolean reconnect) {
+        final long elapsed = System.nanoTime() - startConnect;
+        (reconnect ? reconnectHistogram : connectHistogram).recordNanos(elapsed);
+        statsdClient.recordExecutionTime(prefixStatsdLoaderKey + (reconnect ? "reconnect" : "connect"), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Records the time of a TLS handshake (from the TCP connection established to the handshake completed).
+     * Handshakes resuming a session are recorded apart from the full ones, and all of them by TLS profile too
+     * (-1 if the channel has no profile).
+     */
+    public void sendTlsHandshakeTime(long startHandshake, boolean resumed, int profile) {
+        final long elapsed = System.nanoTime() - startHandshake;
+        (resumed ? tlsResumedHistogram : tlsHandshakeHistogram).recordNanos(elapsed);
+        final LatencyHistogram[] profileHistograms = tlsProfileHistograms;
+        if (profile >= 0 && profile < profileHistograms.length) {
+            profileHistograms[profile].recordNanos(elapsed);
+        }
+        statsdClient.recordExecutionTime(prefixStatsdLoaderKey + (resumed ? "tlsResumed" : "tlsHandshake"), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * TLS handshake refused or failed (not just interrupted by the connection closed).
+     */
+    public void tlsHandshakeFailIncr(int profile) {
+        tlsHandshakeFailed.incrementAndGet();
+        final AtomicLongArray profileFailed = tlsProfileFailed;
+        if (profile >= 0 && profile < profileFailed.length()) {
+            profileFailed.incrementAndGet(profile);
+        }
+    }
+
+    /**
+     * Defines the TLS profiles of the test (in id order), swept one after the other.
+     */
+    public void setTlsProfiles(String[] names) {
+        tlsProfileNames = names;
+        tlsProfileHistograms = Arrays.stream(names).map(name -> new LatencyHistogram()).toArray(LatencyHistogram[]::new);
+        tlsProfileFailed = new AtomicLongArray(names.length);
+        tlsProfileStarts = new AtomicLongArray(names.length);
+    }
+
+    /**
+     * The new connections use this TLS profile from now on, until the next one starts.
+     */
+    public void tlsProfileStarted(int profile) {
+        final AtomicLongArray starts = tlsProfileStarts;
+        if (profile >= 0 && profile < starts.length()) {
+            starts.set(profile, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records the time of a name resolution.
+     */
+    public void sendDnsTime(long startResolve) {
+        final long elapsed = System.nanoTime() - startResolve;
+        dnsHistogram.recordNanos(elapsed);
+        statsdClient.recordExecutionTime(prefixStatsdLoaderKey + "dns", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Records the time of a TCP connect alone (from the address resolved to the connection established).
+     */
+    public void sendTcpConnectTime(long startConnect) {
+        final long elapsed = System.nanoTime() - startConnect;
+        tcpConnectHistogram.recordNanos(elapsed);
+        statsdClient.recordExecutionTime(prefixStatsdLoaderKey + "tcpConnect", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Records the time to write a request, from the write to the whole request handed to the socket.
+     */
+    public void sendWriteTime(long startRequest) {
+        writeHistogram.recordNanos(System.nanoTime() - startRequest);
+    }
+
+    /**
+     * Records the time to the first byte of a response, from the request write.
+     */
+    public void sendFirstByteTime(long startRequest, long firstByte) {
+        final long elapsed = firstByte - startRequest;
+        firstByteHistogram.recordNanos(elapsed);
+        statsdClient.recordExecutionTime(prefixResponse + "firstByte", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Records the time to download a response, from its first to its last byte.
+     */
+    public void sendDownloadTime(long firstByte, long lastByte) {
+        final long elapsed = lastByte - firstByte;
+        downloadHistogram.recordNanos(elapsed);
+        statsdClient.recordExecutionTime(prefixResponse + "download", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Records the time of one hop of a redirect chain (a redirect followed, or the final response of the chain).
+     */
+    public void sendRedirectHopTime(long startHop) {
+        redirectHopHistogram.recordNanos(System.nanoTime() - startHop);
+    }
+
+    /**
+     * Records the time of a whole redirect chain, from the first request to the final response.
+     */
+    public void sendRedirectChainTime(long startChain) {
+        redirectChainHistogram.recordNanos(System.nanoTime() - startChain);
+    }
+
+    /**
+     * Redirect not followed because the chain reached the max hops.
+     */
+    public void redirectsExceededIncr() {
+        redirectsExceeded.incrementAndGet();
+    }
+
     public void incrementConnectionCount() {
         connCounter.incrementAndGet();
         connAccum.incrementAndGet();
@@ -313,7 +586,7 @@ public class MonitorService {
     }
 
     public synchronized void showReport(long start) {
-        long durationSec = (System.currentTimeMillis() - start - testStart) / 1_000L;
+        long durationSec = Math.max(1L, (System.currentTimeMillis() - start - testStart) / 1_000L);
         long numResp = statusCounter.entrySet().stream().mapToLong(Map.Entry::getValue).sum();
         int numWrites = writeAsync.get();
         long sizeTotalKb = sizeSum.get() / 1024L;
@@ -332,11 +605,120 @@ public class MonitorService {
         });
         results.put("status", status);
 
+        results.put("total_writes", numWrites);
+        results.put("skipped", skipped.get());
+        results.put("delayed", delayed.get());
+        final Map<String, Object> connects = new LinkedHashMap<>();
+        connects.put("total", connectHistogram.getTotalCount());
+        connects.put("failed", connectFailed.get());
+        connectFailReasons.forEach((k, v) -> connects.put("failed_" + k, v));
+        results.put("connects", connects);
+        final Map<String, Object> reconnects = new LinkedHashMap<>();
+        reconnects.put("total", reconnectHistogram.getTotalCount());
+        reconnects.put("failed", reconnectFailed.get());
+        reconnectFailReasons.forEach((k, v) -> reconnects.put("failed_" + k, v));
+        results.put("reconnects", reconnects);
+        if (maxSocketsTimeWait.get() >= 0) {
+            // connection churn pressure on the local ports (sampled every second)
+            final Map<String, Object> sockets = new LinkedHashMap<>();
+            final int ephemeralPorts = SystemInfo.ephemeralPorts();
+            sockets.put("in_use_max", maxSocketsInUse.get());
+            sockets.put("time_wait_max", maxSocketsTimeWait.get());
+            sockets.put("ephemeral_ports", ephemeralPorts);
+            if (ephemeralPorts > 0) {
+                // peak of in use + TIME_WAIT of the same sample
+                sockets.put("ephemeral_ports_used_max_pct", 100.0 * maxSocketsUsed.get() / ephemeralPorts);
+            }
+            results.put("sockets", sockets);
+        }
+        final long tlsHandshakes = tlsHandshakeHistogram.getTotalCount() + tlsResumedHistogram.getTotalCount();
+        if (tlsHandshakes > 0) {
+            final Map<String, Object> tls = new LinkedHashMap<>();
+            tls.put("full_handshakes", tlsHandshakeHistogram.getTotalCount());
+            tls.put("resumed", tlsResumedHistogram.getTotalCount());
+            tls.put("resumed_pct", 100.0 * tlsResumedHistogram.getTotalCount() / tlsHandshakes);
+            tls.put("failed", tlsHandshakeFailed.get());
+            tls.put("handshakes_per_sec", tlsHandshakes / durationSec);
+            final Map<String, Object> profiles = tlsProfilesReport();
+            if (!profiles.isEmpty()) {
+                tls.put("profiles", profiles);
+            }
+            results.put("tls", tls);
+        }
+        if (redirectHopHistogram.getTotalCount() > 0 || redirectsExceeded.get() > 0) {
+            final Map<String, Object> redirects = new LinkedHashMap<>();
+            redirects.put("followed", redirectHopHistogram.getTotalCount() - redirectChainHistogram.getTotalCount());
+            redirects.put("chains", redirectChainHistogram.getTotalCount());
+            redirects.put("exceeded", redirectsExceeded.get());
+            results.put("redirects", redirects);
+        }
+        final AtomicLongArray sent = requestsSent;
+        if (sent.length() > 1) {
+            final double[] weights = requestWeights;
+            final double weightSum = weights != null ? Arrays.stream(weights).sum() : sent.length();
+            final Map<String, Object> requestTypes = new LinkedHashMap<>();
+            for (int requestId = 0; requestId < sent.length(); requestId++) {
+                final Map<String, Object> requestType = new LinkedHashMap<>();
+                requestType.put("sent", sent.get(requestId));
+                requestType.put("sent_pct", numWrites > 0 ? 100.0 * sent.get(requestId) / numWrites : 0.0);
+                requestType.put("weight_pct", 100.0 * (weights != null ? weights[requestId] : 1.0) / weightSum);
+                requestTypes.put(requestId + "_" + sanitize(requestNames[requestId], "_"), requestType);
+            }
+            results.put("requests", requestTypes);
+        }
         results.put("total_responses", numResp);
         results.put("rps", numResp / durationSec);
         results.put("size_total", sizeTotalKb);
         results.put("io_throughput", sizeTotalKb / durationSec);
 
+        final Map<String, Object> latency = new LinkedHashMap<>();
+        for (int statusClass = 1; statusClass < statusClassHistograms.length; statusClass++) {
+            if (statusClassHistograms[statusClass].getTotalCount() > 0) {
+                latency.put(statusClass + "xx", statusClassHistograms[statusClass].summary());
+            }
+        }
+        if (failHistogram.getTotalCount() > 0) {
+            latency.put("fail", failHistogram.summary());
+        }
+        final Map<String, Object> pipeline = new LinkedHashMap<>();
+        for (int depth = 1; depth < pipelineDepthHistograms.length; depth++) {
+            if (pipelineDepthHistograms[depth].getTotalCount() > 0) {
+                pipeline.put("depth_" + depth, pipelineDepthHistograms[depth].summary());
+            }
+        }
+        if (pipeline.size() > 1) {
+            latency.put("pipeline", pipeline);
+        }
+        if (connectHistogram.getTotalCount() > 0) {
+            latency.put("connect", connectHistogram.summary());
+        }
+        if (reconnectHistogram.getTotalCount() > 0) {
+            latency.put("reconnect", reconnectHistogram.summary());
+        }
+        final Map<String, Object> phases = new LinkedHashMap<>();
+        putPhase(phases, "dns", dnsHistogram);
+        putPhase(phases, "tcp_connect", tcpConnectHistogram);
+        putPhase(phases, "tls_handshake", tlsHandshakeHistogram);
+        putPhase(phases, "tls_resumed", tlsResumedHistogram);
+        putPhase(phases, "write", writeHistogram);
+        putPhase(phases, "first_byte", firstByteHistogram);
+        putPhase(phases, "download", downloadHistogram);
+        if (!phases.isEmpty()) {
+            latency.put("phases", phases);
+        }
+        if (redirectHopHistogram.getTotalCount() > 0) {
+            latency.put("redirect_hop", redirectHopHistogram.summary());
+            latency.put("redirect_chain", redirectChainHistogram.summary());
+        }
+        latency.put("completed", completedHistogram.summary());
+        latency.put("corrected", correctedHistogram.summary());
+        results.put("latency_ms", latency);
+
+        final Test currentTest = test.get();
+        if (currentTest != null) {
+            currentTest.setResult(flatResults("", results, new HashMap<>()));
+        }
+
         LOGGER.info("conns actives: " + connCounter.get());
         LOGGER.info("writes total: " + numWrites);
         LOGGER.info("rate writes/resps: " + (numWrites * 1.0) / (numResp * 1.0));
@@ -347,6 +729,50 @@ public class MonitorService {
         }
     }
 
+    /**
+     * Handshakes, rate and latency of every TLS profile started, during its own step of the sweep.
+     */
+    private Map<String, Object> tlsProfilesReport() {
+        final String[] names = tlsProfileNames;
+        final LatencyHistogram[] histograms = tlsProfileHistograms;
+        final AtomicLongArray failed = tlsProfileFailed;
+        final AtomicLongArray starts = tlsProfileStarts;
+        final Map<String, Object> profiles = new LinkedHashMap<>();
+        final long now = System.currentTimeMillis();
+        for (int profile = 0; profile < names.length; profile++) {
+            final long start = starts.get(profile);
+            if (start == 0L) {
+                continue;
+            }
+            final long end = profile + 1 < names.length && starts.get(profile + 1) > 0L ? starts.get(profile + 1) : now;
+            final Map<String, Object> tlsProfile = new LinkedHashMap<>();
+            tlsProfile.put("handshakes", histograms[profile].getTotalCount());
+            tlsProfile.put("failed", failed.get(profile));
+            tlsProfile.put("handshakes_per_sec", 1000.0 * histograms[profile].getTotalCount() / Math.max(1L, end - start));
+            tlsProfile.put("latency_ms", histograms[profile].summary());
+            profiles.put(profile + "_" + sanitize(names[profile], "_"), tlsProfile);
+        }
+        return profiles;
+    }
+
+    private static void putPhase(Map<String, Object> phases, String phase, LatencyHistogram histogram) {
+        if (histogram.getTotalCount() > 0) {
+            phases.put(phase, histogram.summary());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private HashMap<String, Double> flatResults(String prefix, Map<String, ?> map, HashMap<String, Double> flat) {
+        map.forEach((k, v) -> {
+            if (v instanceof Number) {
+                flat.put(prefix + k, ((Number) v).doubleValue());
+            } else if (v instanceof Map) {
+                flatResults(prefix + k + "_", (Map<String, ?>) v, flat);
+            }
+        });
+        return flat;
+    }
+
     @SuppressWarnings("unused")
     public void failedIncr(Throwable throwable) {
         failedIncr(throwable.getMessage());
@@ -363,8 +789,40 @@ public class MonitorService {
         }
     }
 
-    public void writeCounterIncr() {
+    public void writeCounterIncr(int requestId) {
         writeAsync.incrementAndGet();
+        final AtomicLongArray counters = requestsSent;
+        if (requestId >= 0 && requestId < counters.length()) {
+            counters.incrementAndGet(requestId);
+        }
+    }
+
+    /**
+     * Defines the request types of the test (in request id order) and their configured weights
+     * (null if they are all sent every tick), so the report can compare the achieved mix with the configured one.
+     */
+    public void setRequestTypes(String[] names, double[] weights) {
+        requestNames = names;
+        requestWeights = weights;
+        requestsSent = new AtomicLongArray(names.length);
+    }
+
+    /**
+     * Request not written: the connection was not writable or had too many requests in flight.
+     */
+    public void skippedIncr() {
+        skipped.incrementAndGet();
+    }
+
+    public void skippedAdd(long count) {
+        skipped.addAndGet(count);
+    }
+
+    /**
+     * Request written later than intended, waiting for a free connection.
+     */
+    public void delayedIncr() {
+        delayed.incrementAndGet();
     }
 
     public void statusIncr(int statusCode) {
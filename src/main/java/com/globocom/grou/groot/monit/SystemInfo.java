@@ -25,11 +25,18 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.lang.management.ManagementFactory;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public final class SystemInfo {
 
     private static final Log LOGGER = LogFactory.getLog(SystemInfo.class);
 
+    private static final Path SOCKSTAT = Paths.get("/proc/net/sockstat");
+    private static final Path PORT_RANGE = Paths.get("/proc/sys/net/ipv4/ip_local_port_range");
+
     private static final UnixOperatingSystemMXBean OS = (UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
 
     private SystemInfo() { }
@@ -54,6 +61,51 @@ public final class SystemInfo {
         }
     }
 
+    /**
+     * TCP sockets of the host (Linux only): { in use, in TIME_WAIT }, or null if unavailable.
+     */
+    public static long[] tcpSockets() {
+        if (!isLinux()) {
+            return null;
+        }
+        try {
+            for (String line : Files.readAllLines(SOCKSTAT, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("TCP:")) {
+                    final String[] fields = line.split("\\s+");
+                    long inUse = -1L;
+                    long timeWait = -1L;
+                    for (int index = 1; index + 1 < fields.length; index += 2) {
+                        if ("inuse".equals(fields[index])) {
+                            inUse = Long.parseLong(fields[index + 1]);
+                        } else if ("tw".equals(fields[index])) {
+                            timeWait = Long.parseLong(fields[index + 1]);
+                        }
+                    }
+                    return new long[] { inUse, timeWait };
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.error(e);
+        }
+        return null;
+    }
+
+    /**
+     * Size of the ephemeral (local) ports range (Linux only), or -1 if unavailable.
+     */
+    public static int ephemeralPorts() {
+        if (!isLinux()) {
+            return -1;
+        }
+        try {
+            final String[] range = new String(Files.readAllBytes(PORT_RANGE), StandardCharsets.US_ASCII).trim().split("\\s+");
+            return Integer.parseInt(range[1]) - Integer.parseInt(range[0]) + 1;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error(e);
+            return -1;
+        }
+    }
+
     public static String getOS() {
         return System.getProperty("os.name", "UNDEF").toLowerCase();
     }
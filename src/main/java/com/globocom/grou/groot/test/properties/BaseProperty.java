@@ -26,6 +26,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import org.apache.commons.logging.Log;
@@ -53,6 +54,12 @@ public class BaseProperty implements Serializable {
      */
     private Integer numConn = 10;
 
+    /**
+     * Connections by host ("host" or "host:port") of the requests, taken from numConn. The other hosts share the
+     * rest by the weight of their requests
+     */
+    private Map<String, Integer> numConnPerHost;
+
     /**
      * Enable saving and using cookies
      */
@@ -68,6 +75,31 @@ public class BaseProperty implements Serializable {
      */
     private String body;
 
+    /**
+     * Body request read from a file (instead of body). The file is memory mapped once and sent without copies
+     */
+    private String bodyFile;
+
+    /**
+     * Size (bytes) of a body generated on the fly (instead of body). Never materialized, so it may be large
+     */
+    private Integer bodySize;
+
+    /**
+     * Content of the generated body: zeros, random (incompressible) or text
+     */
+    private String bodyPattern;
+
+    /**
+     * Deflate compression ratio of the generated text body (default 3.0)
+     */
+    private Double bodyCompressionRatio;
+
+    /**
+     * Send the generated body with chunked transfer encoding (HTTP/1.1), instead of a content-length
+     */
+    private Boolean bodyChunked;
+
     /**
      * Headers request
      */
@@ -89,7 +121,14 @@ public class BaseProperty implements Serializable {
     private Integer connectTimeout = 2000;
 
     /**
-     * Enable keepalive
+     * Addresses used instead of the DNS ones, by host (e.g. {"www.example.com": ["10.0.0.1", "10.0.0.2"]}).
+     * Host header and TLS SNI keep the host name
+     */
+    private Map<String, List<String>> resolve;
+
+    /**
+     * Enable keepalive. If false, every connection sends only one request (connection: close) and is closed after
+     * the response: the load is set by connectRate (new connections per second) and numConn
      */
     private Boolean keepAlive = true;
 
@@ -98,6 +137,11 @@ public class BaseProperty implements Serializable {
      */
     private Boolean followRedirect = false;
 
+    /**
+     * Max redirects followed per request (if followRedirect)
+     */
+    private Integer maxRedirects = 5;
+
     /**
      * Insert delay between requests (in microseconds)
      */
@@ -124,7 +168,8 @@ public class BaseProperty implements Serializable {
     private Integer warmupIterations;
 
     /**
-     * Number of iterations. It's ignored if durationTimeMillis is defined
+     * Number of iterations (requests sent after the warm up, counted across all connections).
+     * The test finishes when they are answered, or when the duration time expires
      */
     private Integer iterations;
 
@@ -134,30 +179,106 @@ public class BaseProperty implements Serializable {
     private Integer connsPerUser;
 
     /**
-     * Number of concurrent users. If omitid, it's equal "numConn" DIV "connsPerUser"
+     * Number of concurrent users. If omitid, it's equal "numConn" DIV "connsPerUser". If defined, "numConn" must be
+     * equal "users" x "connsPerUser"
      */
     private Integer users;
 
     /**
-     * Number of resource trees requested per second, or zero for maximum request rate
+     * Virtual user think time (in ms) between a response and its next request (see arrivalDistribution)
+     */
+    private Integer thinkTime = 0;
+
+    /**
+     * Closed model: each connection sends the next request only when a response completes
+     * (keeping maxRequestsQueued requests in flight, default 1)
+     */
+    private Boolean closedLoop = false;
+
+    /**
+     * Number of requests per second (global open model target), or zero for maximum request rate
      */
     private Integer resourceRate;
 
+    /**
+     * Inter-arrival distribution used with resourceRate, and think time distribution of the virtual users
+     * (constant or poisson)
+     */
+    private String arrivalDistribution = "constant";
+
     /**
      * The rate ramp up period in seconds, or zero for no ramp up
      */
     private Integer rateRampUpPeriod;
 
+    /**
+     * Ramp up profile (linear, step or exponential)
+     */
+    private String rampProfile = "linear";
+
+    /**
+     * Number of steps, if ramp up profile is step
+     */
+    private Integer rampSteps = 10;
+
+    /**
+     * Maximum new connections per second, or zero for unlimited
+     */
+    private Integer connectRate;
+
+    /**
+     * Maximum connections being established at the same time, or zero for unlimited
+     */
+    private Integer maxPendingConnects;
+
+    /**
+     * Maximum reconnections per second (if forceReconnect), or zero for unlimited
+     */
+    private Integer reconnectRate;
+
+    /**
+     * Data feeder file (CSV with a header line, or JSONL). Its fields are referenced as ${field} in the URI,
+     * headers and body of the requests
+     */
+    private String feeder;
+
+    /**
+     * Data feeder records order (sequential, random or circular)
+     */
+    private String feederStrategy = "circular";
+
     /**
      * Number od NIO selectors (IO channels)
      */
     private Integer numberOfNIOselectors;
 
     /**
-     * [INTERNAL] Maximum requests queued
+     * Maximum requests in flight (written and waiting response) per connection, or zero for unlimited
      */
     private Integer maxRequestsQueued;
 
+    /**
+     * HTTP/1.1 pipelining depth: maximum requests in flight per connection (1 disables pipelining).
+     * If omitted, maxRequestsQueued is used
+     */
+    private Integer pipelineDepth;
+
+    /**
+     * HTTP/2 client side limit of concurrent streams per connection (the server SETTINGS_MAX_CONCURRENT_STREAMS
+     * is always honored). If omitted, maxRequestsQueued is used
+     */
+    private Integer maxConcurrentStreams;
+
+    /**
+     * Write buffer low water mark (in bytes). A connection becomes writable again below it. Default = 32768
+     */
+    private Integer writeBufferLowWaterMark;
+
+    /**
+     * Write buffer high water mark (in bytes). A connection is not writable above it. Default = 65536
+     */
+    private Integer writeBufferHighWaterMark;
+
     /**
      * Connection blocking?
      */
@@ -193,6 +314,33 @@ public class BaseProperty implements Serializable {
      */
     private Boolean forceHttp2;
 
+    /**
+     * Resume TLS sessions (session ids or tickets) on reconnections. If false, every connection does a full handshake
+     */
+    private Boolean tlsSessionResumption = false;
+
+    /**
+     * TLS protocol versions swept (ex. TLSv1.2, TLSv1.3). Combined with tlsCurves and tlsCiphers, every
+     * combination runs during an equal share of the test duration
+     */
+    private List<String> tlsProtocols;
+
+    /**
+     * Key exchange curves (named groups) swept (ex. x25519, secp256r1)
+     */
+    private List<String> tlsCurves;
+
+    /**
+     * Cipher suites swept (ex. TLS_AES_128_GCM_SHA256, TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256)
+     */
+    private List<String> tlsCiphers;
+
+    /**
+     * TLS handshakes only: every connection is closed once the handshake is done, without any request. The
+     * handshakes rate is the connectRate
+     */
+    private Boolean tlsHandshakeOnly = false;
+
     public String getUri() {
         return uri;
     }
@@ -211,6 +359,15 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public Map<String, Integer> getNumConnPerHost() {
+        return numConnPerHost;
+    }
+
+    public BaseProperty setNumConnPerHost(Map<String, Integer> numConnPerHost) {
+        this.numConnPerHost = numConnPerHost;
+        return this;
+    }
+
     public Boolean getSaveCookies() {
         return saveCookies;
     }
@@ -238,6 +395,51 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public String getBodyFile() {
+        return bodyFile;
+    }
+
+    public BaseProperty setBodyFile(String bodyFile) {
+        this.bodyFile = bodyFile;
+        return this;
+    }
+
+    public Integer getBodySize() {
+        return bodySize;
+    }
+
+    public BaseProperty setBodySize(Integer bodySize) {
+        this.bodySize = bodySize;
+        return this;
+    }
+
+    public String getBodyPattern() {
+        return bodyPattern;
+    }
+
+    public BaseProperty setBodyPattern(String bodyPattern) {
+        this.bodyPattern = bodyPattern;
+        return this;
+    }
+
+    public Double getBodyCompressionRatio() {
+        return bodyCompressionRatio;
+    }
+
+    public BaseProperty setBodyCompressionRatio(Double bodyCompressionRatio) {
+        this.bodyCompressionRatio = bodyCompressionRatio;
+        return this;
+    }
+
+    public Boolean getBodyChunked() {
+        return bodyChunked;
+    }
+
+    public BaseProperty setBodyChunked(Boolean bodyChunked) {
+        this.bodyChunked = bodyChunked;
+        return this;
+    }
+
     public Map<String, String> getHeaders() {
         return headers;
     }
@@ -274,6 +476,15 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public Map<String, List<String>> getResolve() {
+        return resolve;
+    }
+
+    public BaseProperty setResolve(Map<String, List<String>> resolve) {
+        this.resolve = resolve;
+        return this;
+    }
+
     public Boolean getKeepAlive() {
         return keepAlive;
     }
@@ -292,6 +503,15 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public Integer getMaxRedirects() {
+        return maxRedirects;
+    }
+
+    public BaseProperty setMaxRedirects(Integer maxRedirects) {
+        this.maxRedirects = maxRedirects;
+        return this;
+    }
+
     public Integer getFixedDelay() {
         return fixedDelay;
     }
@@ -366,6 +586,24 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public Integer getThinkTime() {
+        return thinkTime;
+    }
+
+    public BaseProperty setThinkTime(Integer thinkTime) {
+        this.thinkTime = thinkTime;
+        return this;
+    }
+
+    public Boolean getClosedLoop() {
+        return closedLoop;
+    }
+
+    public BaseProperty setClosedLoop(Boolean closedLoop) {
+        this.closedLoop = closedLoop;
+        return this;
+    }
+
     public Integer getResourceRate() {
         return resourceRate;
     }
@@ -375,6 +613,15 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public String getArrivalDistribution() {
+        return arrivalDistribution;
+    }
+
+    public BaseProperty setArrivalDistribution(String arrivalDistribution) {
+        this.arrivalDistribution = arrivalDistribution;
+        return this;
+    }
+
     public Integer getRateRampUpPeriod() {
         return rateRampUpPeriod;
     }
@@ -384,6 +631,69 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public String getRampProfile() {
+        return rampProfile;
+    }
+
+    public BaseProperty setRampProfile(String rampProfile) {
+        this.rampProfile = rampProfile;
+        return this;
+    }
+
+    public Integer getRampSteps() {
+        return rampSteps;
+    }
+
+    public BaseProperty setRampSteps(Integer rampSteps) {
+        this.rampSteps = rampSteps;
+        return this;
+    }
+
+    public Integer getConnectRate() {
+        return connectRate;
+    }
+
+    public BaseProperty setConnectRate(Integer connectRate) {
+        this.connectRate = connectRate;
+        return this;
+    }
+
+    public Integer getMaxPendingConnects() {
+        return maxPendingConnects;
+    }
+
+    public BaseProperty setMaxPendingConnects(Integer maxPendingConnects) {
+        this.maxPendingConnects = maxPendingConnects;
+        return this;
+    }
+
+    public Integer getReconnectRate() {
+        return reconnectRate;
+    }
+
+    public BaseProperty setReconnectRate(Integer reconnectRate) {
+        this.reconnectRate = reconnectRate;
+        return this;
+    }
+
+    public String getFeeder() {
+        return feeder;
+    }
+
+    public BaseProperty setFeeder(String feeder) {
+        this.feeder = feeder;
+        return this;
+    }
+
+    public String getFeederStrategy() {
+        return feederStrategy;
+    }
+
+    public BaseProperty setFeederStrategy(String feederStrategy) {
+        this.feederStrategy = feederStrategy;
+        return this;
+    }
+
     public Integer getNumberOfNIOselectors() {
         return numberOfNIOselectors;
     }
@@ -402,6 +712,42 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public Integer getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public BaseProperty setPipelineDepth(Integer pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+        return this;
+    }
+
+    public Integer getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    public BaseProperty setMaxConcurrentStreams(Integer maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    public Integer getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public BaseProperty setWriteBufferLowWaterMark(Integer writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+        return this;
+    }
+
+    public Integer getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public BaseProperty setWriteBufferHighWaterMark(Integer writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+        return this;
+    }
+
     public Boolean getBlocking() {
         return blocking;
     }
@@ -450,6 +796,51 @@ public class BaseProperty implements Serializable {
         return this;
     }
 
+    public Boolean getTlsSessionResumption() {
+        return tlsSessionResumption;
+    }
+
+    public BaseProperty setTlsSessionResumption(Boolean tlsSessionResumption) {
+        this.tlsSessionResumption = tlsSessionResumption;
+        return this;
+    }
+
+    public List<String> getTlsProtocols() {
+        return tlsProtocols;
+    }
+
+    public BaseProperty setTlsProtocols(List<String> tlsProtocols) {
+        this.tlsProtocols = tlsProtocols;
+        return this;
+    }
+
+    public List<String> getTlsCurves() {
+        return tlsCurves;
+    }
+
+    public BaseProperty setTlsCurves(List<String> tlsCurves) {
+        this.tlsCurves = tlsCurves;
+        return this;
+    }
+
+    public List<String> getTlsCiphers() {
+        return tlsCiphers;
+    }
+
+    public BaseProperty setTlsCiphers(List<String> tlsCiphers) {
+        this.tlsCiphers = tlsCiphers;
+        return this;
+    }
+
+    public Boolean getTlsHandshakeOnly() {
+        return tlsHandshakeOnly;
+    }
+
+    public BaseProperty setTlsHandshakeOnly(Boolean tlsHandshakeOnly) {
+        this.tlsHandshakeOnly = tlsHandshakeOnly;
+        return this;
+    }
+
     public Boolean getForceHttp2() {
         return forceHttp2;
     }
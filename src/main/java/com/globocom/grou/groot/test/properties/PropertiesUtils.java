@@ -16,7 +16,17 @@
 
 package com.globocom.grou.groot.test.properties;
 
+import com.globocom.grou.groot.channel.TlsProfile;
+import com.globocom.grou.groot.channel.feeder.FeederTemplate;
+import com.globocom.grou.groot.loader.Proto;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.util.NetUtil;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,23 +40,196 @@ public interface PropertiesUtils {
         if (!(numConn != null && numConn > 0)) {
             throw new IllegalArgumentException("numConn undefined or less than 1");
         }
+        Map<String, Integer> numConnPerHost = properties.getNumConnPerHost();
+        if (numConnPerHost != null && numConnPerHost.values().stream().anyMatch(conns -> conns == null || conns < 0)) {
+            throw new IllegalArgumentException("numConnPerHost must not be negative");
+        }
+        String arrivalDistribution = properties.getArrivalDistribution();
+        if (arrivalDistribution != null && !arrivalDistribution.matches("(?i)(constant|poisson)")) {
+            throw new IllegalArgumentException("arrivalDistribution must be 'constant' or 'poisson'");
+        }
+        if (Boolean.TRUE.equals(properties.getClosedLoop()) && properties.getResourceRate() != null && properties.getResourceRate() > 0) {
+            throw new IllegalArgumentException("closedLoop and resourceRate are mutually exclusive");
+        }
+        String rampProfile = properties.getRampProfile();
+        if (rampProfile != null && !rampProfile.matches("(?i)(linear|step|exponential)")) {
+            throw new IllegalArgumentException("rampProfile must be 'linear', 'step' or 'exponential'");
+        }
+        Integer pipelineDepth = properties.getPipelineDepth();
+        if (pipelineDepth != null && pipelineDepth < 1) {
+            throw new IllegalArgumentException("pipelineDepth must be greater than zero");
+        }
+        Integer maxConcurrentStreams = properties.getMaxConcurrentStreams();
+        if (maxConcurrentStreams != null && maxConcurrentStreams < 1) {
+            throw new IllegalArgumentException("maxConcurrentStreams must be greater than zero");
+        }
+        Integer iterations = properties.getIterations();
+        Integer warmupIterations = properties.getWarmupIterations();
+        if ((iterations != null && iterations < 0) || (warmupIterations != null && warmupIterations < 0)) {
+            throw new IllegalArgumentException("iterations and warmupIterations must not be negative");
+        }
+        Integer connsPerUser = properties.getConnsPerUser();
+        if (connsPerUser != null && connsPerUser < 1) {
+            throw new IllegalArgumentException("connsPerUser must be greater than zero");
+        }
+        Integer users = properties.getUsers();
+        if (users != null && users < 1) {
+            throw new IllegalArgumentException("users must be greater than zero");
+        }
+        if (users != null || connsPerUser != null) {
+            checkVirtualUsers(properties, numConn, users, connsPerUser == null ? 1 : connsPerUser);
+        }
+        Integer thinkTime = properties.getThinkTime();
+        if (thinkTime != null && thinkTime < 0) {
+            throw new IllegalArgumentException("thinkTime must not be negative");
+        }
+        String feederStrategy = properties.getFeederStrategy();
+        if (feederStrategy != null && !feederStrategy.matches("(?i)(sequential|random|circular)")) {
+            throw new IllegalArgumentException("feederStrategy must be 'sequential', 'random' or 'circular'");
+        }
+        Integer maxRedirects = properties.getMaxRedirects();
+        if (maxRedirects != null && maxRedirects < 0) {
+            throw new IllegalArgumentException("maxRedirects must not be negative");
+        }
+        Map<String, List<String>> resolve = properties.getResolve();
+        if (resolve != null) {
+            resolve.forEach((host, addresses) -> {
+                if (addresses == null || addresses.isEmpty()
+                    || !addresses.stream().allMatch(address -> NetUtil.isValidIpV4Address(address) || NetUtil.isValidIpV6Address(address))) {
+                    throw new IllegalArgumentException("resolve of " + host + " must be a list of IP addresses");
+                }
+            });
+        }
+        List<String> tlsProtocols = properties.getTlsProtocols();
+        if (tlsProtocols != null && !tlsProtocols.stream().allMatch(protocol -> protocol != null && protocol.matches("TLSv1(\\.[123])?"))) {
+            throw new IllegalArgumentException("tlsProtocols must be 'TLSv1', 'TLSv1.1', 'TLSv1.2' or 'TLSv1.3'");
+        }
+        if (Stream.of(properties.getTlsCurves(), properties.getTlsCiphers())
+            .anyMatch(values -> values != null && values.stream().anyMatch(value -> value == null || value.isEmpty()))) {
+            throw new IllegalArgumentException("tlsCurves and tlsCiphers must not have empty values");
+        }
+        if (TlsProfile.matrix(tlsProtocols, properties.getTlsCurves(), properties.getTlsCiphers()).isEmpty()
+            && !(isEmpty(tlsProtocols) && isEmpty(properties.getTlsCurves()) && isEmpty(properties.getTlsCiphers()))) {
+            throw new IllegalArgumentException("tlsCiphers don't match any of the tlsProtocols");
+        }
+        if (!(isEmpty(tlsProtocols) && isEmpty(properties.getTlsCurves()) && isEmpty(properties.getTlsCiphers()))
+            && !Boolean.TRUE.equals(properties.getTlsHandshakeOnly()) && !Boolean.FALSE.equals(properties.getKeepAlive())
+            && Boolean.FALSE.equals(properties.getForceReconnect())) {
+            // a profile applies to the new connections only
+            throw new IllegalArgumentException("tlsProtocols, tlsCurves and tlsCiphers require tlsHandshakeOnly, "
+                + "non persistent connections or forceReconnect");
+        }
+        Integer connectRate = properties.getConnectRate();
+        Integer maxPendingConnects = properties.getMaxPendingConnects();
+        Integer reconnectRate = properties.getReconnectRate();
+        if ((connectRate != null && connectRate < 0) || (maxPendingConnects != null && maxPendingConnects < 0)
+            || (reconnectRate != null && reconnectRate < 0)) {
+            throw new IllegalArgumentException("connectRate, maxPendingConnects and reconnectRate must not be negative");
+        }
+        Integer lowWaterMark = properties.getWriteBufferLowWaterMark();
+        Integer highWaterMark = properties.getWriteBufferHighWaterMark();
+        if (lowWaterMark != null || highWaterMark != null) {
+            // a missing water mark keeps its default
+            int low = lowWaterMark != null ? lowWaterMark : WriteBufferWaterMark.DEFAULT.low();
+            int high = highWaterMark != null ? highWaterMark : WriteBufferWaterMark.DEFAULT.high();
+            if (low < 0 || low > high) {
+                throw new IllegalArgumentException("writeBufferLowWaterMark (default " + WriteBufferWaterMark.DEFAULT.low()
+                    + ") must be between zero and writeBufferHighWaterMark (default " + WriteBufferWaterMark.DEFAULT.high() + ")");
+            }
+        }
         String uri = properties.getUri();
         if (uri != null && !uri.isEmpty()) {
             checkUri(uri);
-            checkBody(properties.getMethod(), properties.getBody());
+            checkHandshakeOnly(properties.getTlsHandshakeOnly(), uri);
+            checkBody(properties.getMethod(), properties.getBody(), properties.getBodyFile(), properties.getBodySize());
+            checkSyntheticBody(properties.getBody(), properties.getBodyFile(), properties.getBodySize(), properties.getBodyPattern(), properties.getBodyCompressionRatio());
         } else {
             if (properties.getRequests() == null || properties.getRequests().isEmpty()) {
                 throw new IllegalArgumentException("URI is Null and 'requests' is Empty");
             }
             for (RequestProperty requestProperty: properties.getRequests()) {
                 checkUri(requestProperty.getUri());
-                checkBody(requestProperty.getMethod(), requestProperty.getBody());
+                checkHandshakeOnly(properties.getTlsHandshakeOnly(), requestProperty.getUri());
+                checkBody(requestProperty.getMethod(), requestProperty.getBody(), requestProperty.getBodyFile(), requestProperty.getBodySize());
+                checkSyntheticBody(requestProperty.getBody(), requestProperty.getBodyFile(), requestProperty.getBodySize(),
+                    requestProperty.getBodyPattern(), requestProperty.getBodyCompressionRatio());
+                if (requestProperty.getWeight() != null && requestProperty.getWeight() < 0) {
+                    throw new IllegalArgumentException("request weight must not be negative");
+                }
+            }
+            if (properties.getRequests().stream().mapToInt(requestProperty -> requestProperty.getWeight() != null ? requestProperty.getWeight() : 1).sum() <= 0) {
+                throw new IllegalArgumentException("requests weights sum must be greater than zero");
             }
         }
     }
 
-    static void checkBody(String method, String body) {
-        if (method != null && method.matches("(POST|PUT|PATCH)")) {
+    /**
+     * Virtual users run their own request loop (one request in flight per user) on users x connsPerUser connections.
+     */
+    static void checkVirtualUsers(BaseProperty properties, int numConn, Integer users, int connsPerUser) {
+        if (Boolean.TRUE.equals(properties.getClosedLoop()) || (properties.getResourceRate() != null && properties.getResourceRate() > 0)
+            || properties.getPipelineDepth() != null || properties.getMaxConcurrentStreams() != null
+            || Boolean.FALSE.equals(properties.getKeepAlive()) || Boolean.TRUE.equals(properties.getTlsHandshakeOnly())) {
+            throw new IllegalArgumentException("users and connsPerUser are incompatible with closedLoop, resourceRate, pipelineDepth, "
+                + "maxConcurrentStreams, tlsHandshakeOnly and non persistent connections");
+        }
+        if (users != null && numConn != users * connsPerUser) {
+            throw new IllegalArgumentException("numConn must be users x connsPerUser (" + users * connsPerUser + ")");
+        }
+        if (numConn % connsPerUser != 0) {
+            throw new IllegalArgumentException("numConn must be a multiple of connsPerUser");
+        }
+    }
+
+    static boolean isEmpty(List<String> values) {
+        return values == null || values.isEmpty();
+    }
+
+    static void checkHandshakeOnly(Boolean tlsHandshakeOnly, String uri) {
+        if (!Boolean.TRUE.equals(tlsHandshakeOnly)) {
+            return;
+        }
+        final String scheme = URI.create(FeederTemplate.maskPlaceholders(uri)).getScheme();
+        boolean ssl;
+        try {
+            ssl = Proto.valueOf(scheme.toUpperCase()).isSsl();
+        } catch (IllegalArgumentException e) {
+            ssl = false;
+        }
+        if (!ssl) {
+            throw new IllegalArgumentException("tlsHandshakeOnly requires TLS URIs (https or h2c): " + uri);
+        }
+    }
+
+    static void checkSyntheticBody(String body, String bodyFile, Integer bodySize, String bodyPattern, Double bodyCompressionRatio) {
+        if (bodySize == null) {
+            return;
+        }
+        if (bodySize <= 0) {
+            throw new IllegalArgumentException("bodySize must be greater than zero");
+        }
+        if ((body != null && !body.isEmpty()) || bodyFile != null) {
+            throw new IllegalArgumentException("bodySize, body and bodyFile are mutually exclusive");
+        }
+        if (bodyPattern != null && !bodyPattern.matches("(?i)(zeros|random|text)")) {
+            throw new IllegalArgumentException("bodyPattern must be 'zeros', 'random' or 'text'");
+        }
+        if (bodyCompressionRatio != null && bodyCompressionRatio < 1.0) {
+            throw new IllegalArgumentException("bodyCompressionRatio must not be less than 1.0");
+        }
+    }
+
+    static void checkBody(String method, String body, String bodyFile, Integer bodySize) {
+        if (bodyFile != null) {
+            if (body != null && !body.isEmpty()) {
+                throw new IllegalArgumentException("body and bodyFile are mutually exclusive");
+            }
+            if (!Files.isRegularFile(Paths.get(bodyFile)) || !Files.isReadable(Paths.get(bodyFile))) {
+                throw new IllegalArgumentException("bodyFile " + bodyFile + " is not a readable file");
+            }
+            return;
+        }
+        if (method != null && method.matches("(POST|PUT|PATCH)") && bodySize == null) {
             if (body == null || body.isEmpty()) {
                 throw new IllegalArgumentException("body is empty and mandatory (method: " + method + ")");
             }
@@ -57,7 +240,7 @@ public interface PropertiesUtils {
         if (uri == null || uri.isEmpty()) {
             throw new IllegalArgumentException("URI undefined");
         }
-        URI uriTested = URI.create(uri);
+        URI uriTested = URI.create(FeederTemplate.maskPlaceholders(uri));
         String schema = uriTested.getScheme();
         if (!schema.matches("(http[s]?|ws[s]?|h2[c]?)")) {
             throw new IllegalArgumentException("The URI scheme, of the URI " + uri + ", "
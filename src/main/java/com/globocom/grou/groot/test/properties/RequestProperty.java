@@ -44,6 +44,31 @@ public class RequestProperty implements Serializable, Comparable<RequestProperty
      */
     private String body;
 
+    /**
+     * Body request read from a file (instead of body). The file is memory mapped once and sent without copies
+     */
+    private String bodyFile;
+
+    /**
+     * Size (bytes) of a body generated on the fly (instead of body). Never materialized, so it may be large
+     */
+    private Integer bodySize;
+
+    /**
+     * Content of the generated body: zeros, random (incompressible) or text
+     */
+    private String bodyPattern;
+
+    /**
+     * Deflate compression ratio of the generated text body (default 3.0)
+     */
+    private Double bodyCompressionRatio;
+
+    /**
+     * Send the generated body with chunked transfer encoding (HTTP/1.1), instead of a content-length
+     */
+    private Boolean bodyChunked;
+
     /**
      * Headers request
      */
@@ -54,6 +79,12 @@ public class RequestProperty implements Serializable, Comparable<RequestProperty
      */
     private String method = "GET";
 
+    /**
+     * Relative weight in the requests mix. If defined in any request, every tick (or arrival) sends one request
+     * sampled from the mix (default weight 1), instead of all the requests in order
+     */
+    private Integer weight;
+
     /**
      * Force HTTP2. Enable use of HTTP/2 without HTTP/1.1 Upgrade. (WIP)
      */
@@ -95,6 +126,51 @@ public class RequestProperty implements Serializable, Comparable<RequestProperty
         return this;
     }
 
+    public String getBodyFile() {
+        return bodyFile;
+    }
+
+    public RequestProperty setBodyFile(String bodyFile) {
+        this.bodyFile = bodyFile;
+        return this;
+    }
+
+    public Integer getBodySize() {
+        return bodySize;
+    }
+
+    public RequestProperty setBodySize(Integer bodySize) {
+        this.bodySize = bodySize;
+        return this;
+    }
+
+    public String getBodyPattern() {
+        return bodyPattern;
+    }
+
+    public RequestProperty setBodyPattern(String bodyPattern) {
+        this.bodyPattern = bodyPattern;
+        return this;
+    }
+
+    public Double getBodyCompressionRatio() {
+        return bodyCompressionRatio;
+    }
+
+    public RequestProperty setBodyCompressionRatio(Double bodyCompressionRatio) {
+        this.bodyCompressionRatio = bodyCompressionRatio;
+        return this;
+    }
+
+    public Boolean getBodyChunked() {
+        return bodyChunked;
+    }
+
+    public RequestProperty setBodyChunked(Boolean bodyChunked) {
+        this.bodyChunked = bodyChunked;
+        return this;
+    }
+
     public Map<String, String> getHeaders() {
         return headers;
     }
@@ -113,6 +189,15 @@ public class RequestProperty implements Serializable, Comparable<RequestProperty
         return this;
     }
 
+    public Integer getWeight() {
+        return weight;
+    }
+
+    public RequestProperty setWeight(Integer weight) {
+        this.weight = weight;
+        return this;
+    }
+
     public Boolean getForceHttp2() {
         return forceHttp2;
     }
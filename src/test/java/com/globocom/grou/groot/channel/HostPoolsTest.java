@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.globocom.grou.groot.loader.Proto;
+import java.net.URI;
+import java.util.Collections;
+import org.junit.Test;
+
+public class HostPoolsTest {
+
+    private static final URI[] URIS = {
+        URI.create("http://www.example.com/"),
+        URI.create("https://api.example.com/v1/items"),
+        URI.create("http://www.example.com:80/about"),
+        URI.create("https://static.example.com:8443/app.js")
+    };
+
+    @Test
+    public void requestsArePooledByOrigin() {
+        final HostPools hostPools = new HostPools(URIS, null);
+        assertEquals(3, hostPools.size());
+        assertEquals(URI.create("http://www.example.com:80"), hostPools.origin(0));
+        assertEquals(URI.create("https://api.example.com:443"), hostPools.origin(1));
+        assertEquals(Proto.HTTPS, hostPools.requestProto(3));
+        assertArrayEquals(new int[][] { { 0, 2 }, { 1 }, { 3 } }, hostPools.poolRequests());
+    }
+
+    @Test
+    public void connectionsAreSplitByWeightAndInterleaved() {
+        final int[] slotPools = new HostPools(URIS, new double[] { 1.0, 2.0, 1.0, 4.0 }).slotPools(8);
+        assertArrayEquals(new int[] { 2, 0, 1, 2, 2, 0, 1, 2 }, slotPools);
+    }
+
+    @Test
+    public void configuredHostsAreTakenFirst() {
+        final int[] slotPools = new HostPools(URIS, null)
+            .setConnsPerHost(Collections.singletonMap("static.example.com:8443", 1))
+            .slotPools(7);
+        final int[] conns = new int[3];
+        for (int pool : slotPools) {
+            conns[pool]++;
+        }
+        assertArrayEquals(new int[] { 4, 2, 1 }, conns);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class TlsProfileTest {
+
+    @Test
+    public void ciphersAreCombinedWithTheirProtocolOnly() {
+        final List<TlsProfile> profiles = TlsProfile.matrix(
+            Arrays.asList("TLSv1.2", "TLSv1.3"),
+            Arrays.asList("x25519", "secp256r1"),
+            Arrays.asList("TLS_AES_128_GCM_SHA256", "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"));
+        assertEquals(Arrays.asList(
+            "TLSv1.2 x25519 TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLSv1.2 secp256r1 TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLSv1.3 x25519 TLS_AES_128_GCM_SHA256",
+            "TLSv1.3 secp256r1 TLS_AES_128_GCM_SHA256"),
+            profiles.stream().map(TlsProfile::name).collect(Collectors.toList()));
+        for (int id = 0; id < profiles.size(); id++) {
+            assertEquals(id, profiles.get(id).id());
+        }
+    }
+
+    @Test
+    public void emptyListsAreTheEngineDefault() {
+        assertTrue(TlsProfile.matrix(null, Collections.emptyList(), null).isEmpty());
+        final List<TlsProfile> profiles = TlsProfile.matrix(null, Arrays.asList("x25519", "x448"), null);
+        assertEquals(Arrays.asList("default x25519 default", "default x448 default"),
+            profiles.stream().map(TlsProfile::name).collect(Collectors.toList()));
+    }
+}
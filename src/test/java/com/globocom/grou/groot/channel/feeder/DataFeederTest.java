@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.feeder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class DataFeederTest {
+
+    @Test
+    public void csvFieldsAreParsed() throws IOException {
+        final DataFeeder feeder = feeder(".csv", FeederStrategy.SEQUENTIAL,
+            "id,\"name, full\",\"note\"\r\n"
+            + "1,\"Doe, John\",plain\r\n"
+            + "2,\"say \"\"hi\"\"\",\r\n");
+        assertEquals(2, feeder.size());
+        assertEquals("1", field(feeder, 0, "id"));
+        assertEquals("Doe, John", field(feeder, 0, "name, full"));
+        assertEquals("plain", field(feeder, 0, "note"));
+        assertEquals("2", field(feeder, 1, "id"));
+        assertEquals("say \"hi\"", field(feeder, 1, "name, full"));
+        assertEquals("", field(feeder, 1, "note"));
+    }
+
+    @Test
+    public void jsonlFieldsAreParsed() throws IOException {
+        final DataFeeder feeder = feeder(".jsonl", FeederStrategy.SEQUENTIAL,
+            "{\"id\": 1, \"user\": {\"name\": \"a\", \"tags\": [1, {\"b\": 2}]}, \"q\": \"x \\\"y\\\" z\"}\n"
+            + "\n"
+            + "{ \"q\" : \"}\" , \"id\" : 2 }\n");
+        assertEquals(2, feeder.size());
+        assertEquals("1", field(feeder, 0, "id"));
+        assertEquals("{\"name\": \"a\", \"tags\": [1, {\"b\": 2}]}", field(feeder, 0, "user"));
+        assertEquals("x \\\"y\\\" z", field(feeder, 0, "q"));
+        assertEquals("2", field(feeder, 1, "id"));
+        assertEquals("}", field(feeder, 1, "q"));
+        assertEquals("", field(feeder, 1, "user"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCsvColumnIsRejected() throws IOException {
+        feeder(".csv", FeederStrategy.SEQUENTIAL, "id\n1\n").field("name");
+    }
+
+    @Test
+    public void sequentialRecordsAreUsedOnce() throws Exception {
+        final StringBuilder lines = new StringBuilder("id\n");
+        for (int i = 0; i < 1000; i++) {
+            lines.append(i).append('\n');
+        }
+        final AtomicInteger exhausted = new AtomicInteger(0);
+        final DataFeeder feeder = feeder(".csv", FeederStrategy.SEQUENTIAL, lines.toString()).onExhausted(exhausted::incrementAndGet);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> {
+                    final List<Integer> records = new ArrayList<>();
+                    for (int record; (record = feeder.nextRecord()) >= 0; ) {
+                        records.add(record);
+                    }
+                    return records;
+                }));
+            }
+            final BitSet used = new BitSet();
+            int count = 0;
+            for (Future<List<Integer>> result : results) {
+                for (int record : result.get()) {
+                    assertTrue("record " + record + " used twice", !used.get(record));
+                    used.set(record);
+                    count++;
+                }
+            }
+            assertEquals(1000, count);
+            assertEquals(1, exhausted.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void circularRecordsWrapAround() throws IOException {
+        final DataFeeder feeder = feeder(".csv", FeederStrategy.CIRCULAR, "id\na\nb\nc\n");
+        for (int i = 0; i < 7; i++) {
+            assertEquals(i % 3, feeder.nextRecord());
+        }
+    }
+
+    private static DataFeeder feeder(String suffix, FeederStrategy strategy, String content) throws IOException {
+        final Path path = Files.createTempFile("feeder", suffix);
+        path.toFile().deleteOnExit();
+        Files.write(path, content.getBytes(CharsetUtil.UTF_8));
+        return new DataFeeder(path, strategy);
+    }
+
+    private static String field(DataFeeder feeder, int record, String name) {
+        final ByteBuf out = Unpooled.buffer();
+        feeder.writeField(out, record, feeder.field(name));
+        return out.toString(CharsetUtil.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.feeder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import java.util.UUID;
+import org.junit.Test;
+
+public class FeederTemplateTest {
+
+    @Test
+    public void generatorsAreRendered() {
+        final FeederTemplate template = new FeederTemplate("/a/${__counter(10)}?r=${__random(5,5)}&s=${__randomString(6)}", null);
+        assertEquals("/a/10?r=5&s=", render(template).substring(0, 12));
+        assertEquals("/a/11?r=5", render(template).substring(0, 9));
+        assertTrue(render(template).matches("/a/12\\?r=5&s=[0-9A-Za-z]{6}"));
+    }
+
+    @Test
+    public void uuidIsValid() {
+        final String uuid = render(new FeederTemplate("${__UUID()}", null));
+        assertEquals(uuid, UUID.fromString(uuid).toString());
+        assertEquals(4, UUID.fromString(uuid).version());
+    }
+
+    @Test
+    public void decimalsAreWritten() {
+        final ByteBuf out = Unpooled.buffer();
+        for (long value : new long[] { 0L, 9L, 10L, -123L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            out.clear();
+            ValueGenerator.writeDecimal(out, value);
+            assertEquals(Long.toString(value), out.toString(CharsetUtil.US_ASCII));
+        }
+    }
+
+    @Test
+    public void fieldsWithoutFeederAreKept() {
+        assertEquals("${id}-0", render(new FeederTemplate("${id}-${__counter}", null)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownGeneratorIsRejected() {
+        new FeederTemplate("${__unknown()}", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongArgumentsAreRejected() {
+        new FeederTemplate("${__random(1)}", null);
+    }
+
+    private static String render(final FeederTemplate template) {
+        final ByteBuf out = Unpooled.buffer();
+        template.render(out, 0);
+        return out.toString(CharsetUtil.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.channel.scheduler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AliasTableTest {
+
+    @Test
+    public void samplesFollowTheWeights() {
+        final AliasTable aliasTable = new AliasTable(new double[] { 80.0, 15.0, 5.0, 0.0 });
+        final int samples = 1_000_000;
+        final int[] counts = new int[aliasTable.size()];
+        for (int sample = 0; sample < samples; sample++) {
+            counts[aliasTable.next()]++;
+        }
+        assertEquals(0.80, counts[0] / (double) samples, 0.005);
+        assertEquals(0.15, counts[1] / (double) samples, 0.005);
+        assertEquals(0.05, counts[2] / (double) samples, 0.005);
+        assertEquals(0, counts[3]);
+    }
+
+    @Test
+    public void singleWeightIsAlwaysSelected() {
+        final AliasTable aliasTable = new AliasTable(new double[] { 3.0 });
+        for (int sample = 0; sample < 1_000; sample++) {
+            assertEquals(0, aliasTable.next());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroWeightsAreRejected() {
+        new AliasTable(new double[] { 0.0, 0.0 });
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017-2018 Globo.com
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.globocom.grou.groot.monit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreWithinOnePercent() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.recordMicros(micros);
+        }
+        assertEquals(100_000L, histogram.getTotalCount());
+        assertEquals(100_000L, histogram.getMaxMicros());
+        assertEquals(50_000.0, histogram.percentileMicros(50.0), 500.0);
+        assertEquals(99_000.0, histogram.percentileMicros(99.0), 990.0);
+        assertEquals(99_900.0, histogram.percentileMicros(99.9), 999.0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(3);
+        histogram.recordMicros(7);
+        assertEquals(3L, histogram.percentileMicros(50.0));
+        assertEquals(7L, histogram.percentileMicros(100.0));
+    }
+
+    @Test
+    public void valuesAreClampedAndResettable() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(Long.MAX_VALUE);
+        histogram.recordMicros(-1L);
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_MICROS, histogram.getMaxMicros());
+        assertTrue(histogram.summary().containsKey("p99.9"));
+        histogram.reset();
+        assertEquals(0L, histogram.getTotalCount());
+        assertEquals(0L, histogram.percentileMicros(99.0));
+    }
+}